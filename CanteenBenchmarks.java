@@ -0,0 +1,320 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class CanteenBenchmarks {
+    private static final String[] WORDS = {"Veg", "Chicken", "Paneer", "Masala", "Cold", "Hot", "Spicy", "Cheese",
+            "Momo", "Burger", "Coffee", "Tea", "Noodles", "Rice", "Wrap", "Soup", "Salad", "Lassi"};
+    private static final String[] CATEGORIES = {"Snacks", "Beverages", "Meals", "Desserts"};
+
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final long iterationMillis;
+    private final int threads;
+    private volatile long sink;
+
+    public CanteenBenchmarks(int warmupIterations, int measureIterations, long iterationMillis, int threads) {
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+        this.iterationMillis = iterationMillis;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("menuSize", "100,10000");
+        options.put("cartSize", "5,50");
+        options.put("orderVolume", "10000,200000");
+        options.put("threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        options.put("warmup", "3");
+        options.put("iterations", "5");
+        options.put("iterationMillis", "500");
+        options.put("only", "");
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split < 0 || !options.containsKey(arg.substring(0, split))) {
+                throw new IllegalArgumentException("Unknown option " + arg + "; expected one of " + options.keySet() + ".");
+            }
+            options.put(arg.substring(0, split), arg.substring(split + 1));
+        }
+
+        Path feedbackFile = Files.createTempFile("feedback-bench", ".txt");
+        System.setProperty("canteen.feedback.file", feedbackFile.toString());
+        System.setProperty("canteen.feedback.fsync", System.getProperty("canteen.feedback.fsync", "NEVER"));
+
+        CanteenBenchmarks bench = new CanteenBenchmarks(Integer.parseInt(options.get("warmup")),
+                Integer.parseInt(options.get("iterations")), Long.parseLong(options.get("iterationMillis")),
+                Integer.parseInt(options.get("threads")));
+        String only = options.get("only");
+        System.out.printf("%-34s %-28s %14s %12s%n", "Benchmark", "Params", "ns/op", "+/-");
+        for (int menuSize : ints(options.get("menuSize"))) {
+            Menu menu = buildMenu(menuSize);
+            for (int cartSize : ints(options.get("cartSize"))) {
+                bench.runCartBenchmarks(only, menu, menuSize, cartSize);
+            }
+            bench.runMenuBenchmarks(only, menu, menuSize);
+        }
+        for (int orderVolume : ints(options.get("orderVolume"))) {
+            bench.runOrderManagerBenchmarks(only, orderVolume);
+            bench.runSalesLedgerBenchmarks(only, orderVolume);
+        }
+        bench.runPaymentBenchmarks(only);
+        bench.runFeedbackBenchmarks(only);
+        Files.deleteIfExists(feedbackFile);
+    }
+
+    private void runCartBenchmarks(String only, Menu menu, int menuSize, int cartSize) {
+        String params = "menu=" + menuSize + " cart=" + cartSize;
+        List<FoodItem> items = menu.getItems();
+        Cart cart = new Cart("BENCH", new Customer("C-BENCH", "Bench"));
+        for (int i = 0; i < cartSize; i++) {
+            cart.addItem(items.get(i % items.size()));
+        }
+        FoodItem hot = items.get(ThreadLocalRandom.current().nextInt(Math.min(cartSize, items.size())));
+        run(only, "Cart.addItem+removeItem", params, () -> {
+            cart.addItem(hot);
+            cart.removeItem(hot);
+        });
+        run(only, "Cart.calculateTotal", params, () -> sink += (long) cart.calculateTotal());
+    }
+
+    private void runMenuBenchmarks(String only, Menu menu, int menuSize) {
+        String params = "menu=" + menuSize;
+        List<FoodItem> items = menu.getItems();
+        String[] names = new String[items.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = items.get(i).getName().toUpperCase();
+        }
+        int[] cursor = new int[1];
+        run(only, "Menu.findItemByName", params, () -> {
+            sink += menu.findItemByName(names[cursor[0]++ % names.length]).getOrdinal();
+        });
+        String[] queries = {"m", "mo", "cof", "chees", "spicy ch", "zzz"};
+        run(only, "Menu.search", params, () -> sink += menu.search(queries[cursor[0]++ % queries.length]).size());
+        run(only, "Menu.search(category)", params, () -> {
+            sink += menu.search(queries[cursor[0]++ % queries.length], CATEGORIES[cursor[0] % CATEGORIES.length]).size();
+        });
+        // Readers keep going while a writer republishes the menu with a new price every 50 ms
+        Thread repricer = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    FoodItem item = menu.getItems().get(random.nextInt(menuSize));
+                    menu.updatePrice(item.getItemID(), 5 + random.nextInt(2000) / 100.0);
+                    Thread.sleep(50);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "menu-repricer");
+        if (only.isEmpty() || "Menu.search(repricing)".contains(only)) {
+            repricer.start();
+        }
+        run(only, "Menu.search(repricing)", params, () -> sink += menu.search(queries[cursor[0]++ % queries.length]).size());
+        repricer.interrupt();
+    }
+
+    private void runOrderManagerBenchmarks(String only, int orderVolume) {
+        String params = "orders=" + orderVolume;
+        Menu menu = buildMenu(100);
+        OrderManager manager = new OrderManager();
+        Customer[] customers = new Customer[Math.max(1, orderVolume / 20)];
+        Vendor[] vendors = new Vendor[20];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = new Customer("C" + i, "Customer " + i);
+        }
+        for (int i = 0; i < vendors.length; i++) {
+            vendors[i] = new Vendor("V" + i, "Stall " + i);
+        }
+        Map<FoodItem, Integer> lines = new LinkedHashMap<>();
+        lines.put(menu.getItems().get(0), 2);
+        String[] orderIDs = new String[orderVolume];
+        for (int i = 0; i < orderVolume; i++) {
+            Order order = new Order(customers[i % customers.length], vendors[i % vendors.length], lines);
+            orderIDs[i] = order.getOrderID();
+            manager.placeOrder(order);
+        }
+        int[] cursor = new int[1];
+        run(only, "OrderManager.findOrder", params, () -> {
+            sink += manager.findOrder(orderIDs[cursor[0]++ % orderIDs.length]).getItems().size();
+        });
+        run(only, "OrderManager.getOrdersByCustomer", params, () -> {
+            sink += manager.getOrdersByCustomer(customers[cursor[0]++ % customers.length]).size();
+        });
+        run(only, "OrderManager.countOrdersByStatus", params, () -> sink += manager.countOrdersByStatus("Pending"));
+    }
+
+    private void runSalesLedgerBenchmarks(String only, int orderVolume) throws IOException {
+        String params = "rows=" + orderVolume;
+        Path directory = Files.createTempDirectory("sales-bench");
+        try (SalesLedger ledger = new SalesLedger(directory)) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long day = TimeUnit.DAYS.toMillis(1);
+            long start = System.currentTimeMillis() - 60 * day;
+            for (int i = 0; i < orderVolume; i++) {
+                ledger.append(start + i * (60 * day / orderVolume), "V" + (i % 20), "F" + random.nextInt(100),
+                        1 + random.nextInt(3), 500 + random.nextInt(2000), (byte) (i & 1));
+            }
+            run(only, "SalesLedger.revenueByItem(30d)", params, () -> sink += ledger.revenueByItem(null,
+                    System.currentTimeMillis() - 30 * day, Long.MAX_VALUE).length);
+            run(only, "SalesLedger.revenueByItem(vendor)", params, () -> sink += ledger.revenueByItem("V7",
+                    0, Long.MAX_VALUE).length);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> file.toFile().delete());
+        }
+        Files.delete(directory);
+    }
+
+    private void runPaymentBenchmarks(String only) throws InterruptedException {
+        String params = "threads=" + threads;
+        Vendor vendor = new Vendor("V-BENCH", "Bench Stall");
+        Order order = new Order(new Customer("C-BENCH", "Bench"), vendor, new LinkedHashMap<>());
+        runContended(only, "CashPayment.processPayment", params, () -> {
+            sink += new CashPayment("PAY", 12.5, 20).processPayment(order) ? 1 : 0;
+        });
+        runContended(only, "DigitalPayment.processPayment", params, () -> {
+            sink += new DigitalPayment("PAY", 12.5, "TXN-1").processPayment(order) ? 1 : 0;
+        });
+        SettlementPipeline pipeline = new SettlementPipeline(256, 0);
+        runContended(only, "SettlementPipeline.submit", params, () -> {
+            Payment payment = new CashPayment(IdGenerator.getDefault().nextId("PAY-"), 12.5, 20);
+            sink += pipeline.submit(payment, order).join().getBatchSize();
+        });
+        pipeline.shutdown();
+    }
+
+    private void runFeedbackBenchmarks(String only) throws IOException {
+        Vendor vendor = new Vendor("V-BENCH", "Bench Stall");
+        Customer customer = new Customer("C-BENCH", "Bench");
+        Order order = new Order(customer, vendor, new LinkedHashMap<>());
+        Feedback feedback = new Feedback("FB-BENCH", customer, order, 5, "Great momo");
+        FeedbackJournal journal = FeedbackJournal.getDefault();
+        run(only, "Feedback.saveToFile", "fsync=" + System.getProperty("canteen.feedback.fsync"), () -> {
+            CompletableFuture<Void> written = feedback.saveToFile();
+            // Keep the caller honest about the writer's pace instead of only timing the enqueue
+            if (journal.getPendingCount() > 1024) {
+                written.join();
+            }
+        });
+    }
+
+    private void run(String only, String name, String params, Runnable operation) {
+        if (!only.isEmpty() && !name.contains(only)) {
+            return;
+        }
+        for (int i = 0; i < warmupIterations; i++) {
+            timeIteration(operation);
+        }
+        double[] samples = new double[measureIterations];
+        for (int i = 0; i < measureIterations; i++) {
+            samples[i] = timeIteration(operation);
+        }
+        report(name, params, samples);
+    }
+
+    private double timeIteration(Runnable operation) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(iterationMillis);
+        long operations = 0;
+        long start = System.nanoTime();
+        long now;
+        do {
+            for (int i = 0; i < 64; i++) {
+                operation.run();
+            }
+            operations += 64;
+            now = System.nanoTime();
+        } while (now < deadline);
+        return (now - start) / (double) operations;
+    }
+
+    private void runContended(String only, String name, String params, Runnable operation) throws InterruptedException {
+        if (!only.isEmpty() && !name.contains(only)) {
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                timeContendedIteration(pool, operation);
+            }
+            double[] samples = new double[measureIterations];
+            for (int i = 0; i < measureIterations; i++) {
+                samples[i] = timeContendedIteration(pool, operation);
+            }
+            report(name, params, samples);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Reports wall-clock nanoseconds per operation across all threads, i.e. the inverse of throughput
+    private double timeContendedIteration(ExecutorService pool, Runnable operation) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] perThread = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int slot = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(iterationMillis);
+                    long operations = 0;
+                    do {
+                        for (int i = 0; i < 64; i++) {
+                            operation.run();
+                        }
+                        operations += 64;
+                    } while (System.nanoTime() < deadline);
+                    perThread[slot] = operations;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        return elapsed / (double) Math.max(1, Arrays.stream(perThread).sum());
+    }
+
+    private void report(String name, String params, double[] samples) {
+        double mean = Arrays.stream(samples).average().orElse(0);
+        double variance = Arrays.stream(samples).map(s -> (s - mean) * (s - mean)).sum() / Math.max(1, samples.length - 1);
+        System.out.printf("%-34s %-28s %14.1f %12.1f%n", name, params, mean, Math.sqrt(variance));
+    }
+
+    static Menu buildMenu(int size) {
+        Menu menu = new Menu();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<FoodItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            items.add(new FoodItem("F" + i, name, 5 + random.nextInt(2000) / 100.0, CATEGORIES[i % CATEGORIES.length]));
+        }
+        menu.addItems(items);
+        return menu;
+    }
+
+    private static List<Integer> ints(String csv) {
+        List<Integer> values = new ArrayList<>();
+        for (String part : csv.split(",")) {
+            values.add(Integer.parseInt(part.trim()));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,474 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JSON ordering API for kiosks and phones, served by the JDK's built-in HTTP server with one (virtual where
+ * available) thread per request. Every client gets its own cart session; orders go through the same vendor
+ * registry as the terminal.
+ *
+ * GET    /menu?vendor=&q=&category=          browse or search the menus
+ * POST   /carts?customer=&name=              open a cart session
+ * GET    /carts/{cart}                       cart lines and total
+ * POST   /carts/{cart}/items?item=&quantity= add items, reserving stock (409 when sold out)
+ * DELETE /carts/{cart}/items/{item}          remove one unit, or all with ?all=true
+ * POST   /carts/{cart}/checkout?method=cash&cashReceived= or ?method=digital&transactionID=
+ * GET    /orders/{order}                     status and estimated ready time (epoch millis)
+ *
+ * Parameters may come in the query string or a form-encoded body of up to 64 KB; larger bodies get 413. Amounts,
+ * cashReceived included, are whole minor units (1250 is ¥12.50). A checkout sent with an Idempotency-Key header is
+ * settled once per cart and key; retries get the first result back. Carts left idle for half an hour are swept
+ * away in the background and their reserved stock goes back on sale.
+ */
+public class CanteenHttpApi {
+    private static final long SESSION_IDLE_MILLIS = Long.getLong("canteen.http.sessionIdleMillis",
+            TimeUnit.MINUTES.toMillis(30));
+    private static final LatencyHistogram REQUEST_LATENCY = Metrics.getDefault().histogram(Metrics.HTTP_REQUEST);
+    private static final LongAdder ERRORS = Metrics.getDefault().counter("http.errors");
+    private static final int MAX_FORM_BYTES = 64 * 1024;
+
+    private final VendorRegistry registry;
+    private final PaymentAuthorizer authorizer;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Customer> customers = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService requestThreads;
+    private ScheduledExecutorService sessionSweeper;
+
+    public CanteenHttpApi(VendorRegistry registry, PaymentAuthorizer authorizer) {
+        this.registry = registry;
+        this.authorizer = authorizer;
+        Metrics.getDefault().gauge("http.sessions", sessions::size);
+    }
+
+    public synchronized void start(int port) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("HTTP API is already running.");
+        }
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        requestThreads = VirtualThreads.newPerTaskExecutor("http");
+        server.setExecutor(requestThreads);
+        server.createContext("/", this::handle);
+        server.start();
+        sessionSweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "http-session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1_000, SESSION_IDLE_MILLIS / 10);
+        sessionSweeper.scheduleWithFixedDelay(this::expireIdleSessions, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(1);
+            requestThreads.shutdown();
+            sessionSweeper.shutdown();
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        int status = 200;
+        String body;
+        try {
+            body = route(exchange.getRequestMethod(), exchange.getRequestURI().getPath().split("/"), parameters(exchange),
+                    exchange.getRequestHeaders().getFirst("Idempotency-Key"));
+        } catch (IOException e) {
+            status = 400;
+            body = error("Could not read the request: " + e.getMessage());
+        } catch (NotFoundException e) {
+            status = 404;
+            body = error(e.getMessage());
+        } catch (PayloadTooLargeException e) {
+            status = 413;
+            body = error(e.getMessage());
+        } catch (PaymentException e) {
+            status = 402;
+            body = error(e.getMessage());
+        } catch (SoldOutException e) {
+            status = 409;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error("Internal error: " + e);
+        }
+        if (status >= 400) {
+            ERRORS.increment();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        REQUEST_LATENCY.recordSince(start);
+    }
+
+    // Path segments start with an empty string for the leading slash
+    private String route(String method, String[] path, Map<String, String> params, String idempotencyKey)
+            throws PaymentException {
+        String resource = path.length > 1 ? path[1] : "";
+        if (resource.equals("menu") && path.length == 2) {
+            requireMethod(method, "GET");
+            return menu(params.get("vendor"), params.get("q"), params.get("category"));
+        }
+        if (resource.equals("carts") && path.length == 2) {
+            requireMethod(method, "POST");
+            return openCart(params.get("customer"), params.get("name"));
+        }
+        if (resource.equals("carts") && path.length >= 3) {
+            Session session = session(path[2]);
+            // A lock rather than a monitor: checkout blocks on the gateway and shard, which would pin a virtual thread
+            session.lock.lock();
+            try {
+                if (session.expired) {
+                    throw new NotFoundException("No cart " + path[2] + ".");
+                }
+                session.lastAccess = System.currentTimeMillis();
+                if (path.length == 3) {
+                    requireMethod(method, "GET");
+                } else if (path[3].equals("items") && path.length == 4) {
+                    requireMethod(method, "POST");
+                    FoodItem item = item(params.get("item"));
+                    int quantity = params.containsKey("quantity") ? Integer.parseInt(params.get("quantity")) : 1;
+                    if (quantity < 1 || quantity > 100) {
+                        throw new IllegalArgumentException("Quantity must be between 1 and 100.");
+                    }
+                    session.cart.addItem(item, quantity);
+                } else if (path[3].equals("items") && path.length == 5) {
+                    requireMethod(method, "DELETE");
+                    FoodItem item = cartItem(session.cart, path[4]);
+                    if (Boolean.parseBoolean(params.get("all"))) {
+                        session.cart.removeAll(item);
+                    } else {
+                        session.cart.removeItem(item);
+                    }
+                } else if (path[3].equals("checkout") && path.length == 4) {
+                    requireMethod(method, "POST");
+                    return checkout(session.cart, params, idempotencyKey);
+                } else {
+                    throw new NotFoundException("No such resource.");
+                }
+                return cartJson(session.cart);
+            } finally {
+                session.lock.unlock();
+            }
+        }
+        if (resource.equals("orders") && path.length == 3) {
+            requireMethod(method, "GET");
+            return orderJson(findOrder(path[2]));
+        }
+        throw new NotFoundException("No such resource.");
+    }
+
+    private String menu(String vendorID, String query, String category) {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        boolean first = true;
+        for (VendorShard shard : registry.getShards()) {
+            Vendor vendor = shard.getVendor();
+            if (vendorID != null && !vendorID.equals(vendor.getVendorID())) {
+                continue;
+            }
+            for (FoodItem item : vendor.getMenu().getSnapshot().search(query, category)) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                json.append("{\"id\":").append(quote(item.getItemID()))
+                        .append(",\"name\":").append(quote(item.getName()))
+                        .append(",\"priceMinor\":").append(item.getPriceMinor())
+                        .append(",\"category\":").append(quote(item.getCategory()))
+                        .append(",\"vendor\":").append(quote(vendor.getVendorID()));
+                if (item.getStock().isTracked()) {
+                    json.append(",\"available\":").append(item.getStock().getAvailable());
+                }
+                json.append('}');
+            }
+        }
+        return json.append("]}").toString();
+    }
+
+    private String openCart(String customerID, String name) {
+        if (customerID == null || customerID.isEmpty()) {
+            throw new IllegalArgumentException("A customer ID is required.");
+        }
+        Customer customer = customers.computeIfAbsent(customerID, id -> new Customer(id, name == null ? id : name));
+        String cartID = IdGenerator.getDefault().nextId("CART-");
+        Session session = new Session(new Cart(cartID, customer));
+        sessions.put(cartID, session);
+        return cartJson(session.cart);
+    }
+
+    private String checkout(Cart cart, Map<String, String> params, String idempotencyKey) throws PaymentException {
+        // A retried checkout finds the cart already emptied by the first attempt and must still get its result
+        if (cart.isEmpty() && (idempotencyKey == null || !registry.isCheckoutKnown(cart, idempotencyKey))) {
+            throw new PaymentException("Cart is empty!");
+        }
+        String method = params.getOrDefault("method", "");
+        VendorRegistry.PaymentFactory payments;
+        long receivedMinor = 0;
+        if (method.equals("cash")) {
+            receivedMinor = Long.parseLong(params.getOrDefault("cashReceived", "0"));
+            if (receivedMinor < 0) {
+                throw new IllegalArgumentException("Cash received cannot be negative.");
+            }
+            if (receivedMinor < cart.getTotalMinor()) {
+                throw new PaymentException("Insufficient cash.");
+            }
+            payments = (vendor, amount) -> new CashPayment(IdGenerator.getDefault().nextId("PAY-"), amount, amount);
+        } else if (method.equals("digital")) {
+            String transactionID = params.get("transactionID");
+            if (transactionID == null || transactionID.isEmpty()) {
+                throw new IllegalArgumentException("A transaction ID is required.");
+            }
+            payments = (vendor, amount) -> new DigitalPayment(IdGenerator.getDefault().nextId("PAY-"), amount,
+                    transactionID + "-" + vendor.getVendorID());
+        } else {
+            throw new IllegalArgumentException("Payment method must be cash or digital.");
+        }
+
+        VendorRegistry.SplitCheckout result;
+        try {
+            // The session lock is held, so the cart can be updated on whichever thread finishes the split
+            result = registry.checkout(idempotencyKey, cart, payments, authorizer, Runnable::run).join();
+        } catch (CompletionException e) {
+            throw new PaymentException(e.getCause().getMessage());
+        }
+        StringBuilder json = new StringBuilder("{\"orders\":[");
+        List<Order> orders = result.getOrders();
+        long paidMinor = 0;
+        for (int i = 0; i < orders.size(); i++) {
+            json.append(i == 0 ? "" : ",").append(orderJson(orders.get(i)));
+            for (Map.Entry<FoodItem, Integer> line : orders.get(i).getItems().entrySet()) {
+                paidMinor += line.getKey().getPriceMinor() * line.getValue();
+            }
+        }
+        json.append("],\"failures\":{");
+        boolean first = true;
+        for (Map.Entry<Vendor, Throwable> failure : result.getFailures().entrySet()) {
+            json.append(first ? "" : ",").append(quote(failure.getKey().getVendorID())).append(':')
+                    .append(quote(String.valueOf(failure.getValue().getMessage())));
+            first = false;
+        }
+        json.append('}');
+        if (method.equals("cash") && result.isComplete()) {
+            json.append(",\"changeMinor\":").append(receivedMinor - paidMinor);
+        }
+        return json.append(",\"cart\":").append(cartJson(cart)).append('}').toString();
+    }
+
+    private Order findOrder(String orderID) {
+        for (VendorShard shard : registry.getShards()) {
+            Order order = shard.getOrderService().findOrder(orderID);
+            if (order != null) {
+                return order;
+            }
+        }
+        throw new NotFoundException("No order " + orderID + ".");
+    }
+
+    private Session session(String cartID) {
+        Session session = sessions.get(cartID);
+        if (session == null) {
+            throw new NotFoundException("No cart " + cartID + ".");
+        }
+        return session;
+    }
+
+    private FoodItem item(String itemID) {
+        FoodItem item = itemID == null ? null : registry.findItemByID(itemID);
+        if (item == null) {
+            throw new NotFoundException("No item " + itemID + ".");
+        }
+        return item;
+    }
+
+    // Lines may hold an item at a price the menu has since changed, so look in the cart first
+    private static FoodItem cartItem(Cart cart, String itemID) {
+        for (int line = 0; line < cart.getLineCount(); line++) {
+            if (cart.getLineItem(line).getItemID().equals(itemID)) {
+                return cart.getLineItem(line);
+            }
+        }
+        throw new NotFoundException("Item " + itemID + " is not in the cart.");
+    }
+
+    // Runs on the sweeper; the idle check is repeated under the session lock so a request that just arrived wins,
+    // and a session whose lock is held is in use, so it is skipped rather than waited on
+    private void expireIdleSessions() {
+        long cutoff = System.currentTimeMillis() - SESSION_IDLE_MILLIS;
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+            Session session = it.next();
+            if (session.lastAccess >= cutoff || !session.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (session.lastAccess < cutoff) {
+                    session.expired = true;
+                    it.remove();
+                    // An abandoned cart hands its reservations back to the shelf
+                    session.cart.clearCart();
+                }
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+
+    private static String cartJson(Cart cart) {
+        StringBuilder json = new StringBuilder("{\"id\":").append(quote(cart.getCartID()))
+                .append(",\"customer\":").append(quote(cart.getCustomer().getCustomerID()))
+                .append(",\"lines\":[");
+        for (int line = 0; line < cart.getLineCount(); line++) {
+            FoodItem item = cart.getLineItem(line);
+            json.append(line == 0 ? "" : ",")
+                    .append("{\"item\":").append(quote(item.getItemID()))
+                    .append(",\"name\":").append(quote(item.getName()))
+                    .append(",\"quantity\":").append(cart.getLineQuantity(line))
+                    .append(",\"priceMinor\":").append(item.getPriceMinor())
+                    .append('}');
+        }
+        return json.append("],\"totalMinor\":").append(cart.getTotalMinor()).append('}').toString();
+    }
+
+    private static String orderJson(Order order) {
+        StringBuilder json = new StringBuilder("{\"id\":").append(quote(order.getOrderID()))
+                .append(",\"vendor\":").append(quote(order.getVendor().getVendorID()))
+                .append(",\"status\":").append(quote(order.getStatus()))
+                .append(",\"readyAtMillis\":").append(order.isOpen() ? order.getEtaMillis() : 0)
+                .append(",\"items\":{");
+        boolean first = true;
+        for (Map.Entry<FoodItem, Integer> line : order.getItems().entrySet()) {
+            json.append(first ? "" : ",").append(quote(line.getKey().getItemID())).append(':').append(line.getValue());
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(String.valueOf(message)) + "}";
+    }
+
+    static String quote(String text) {
+        StringBuilder json = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new IllegalArgumentException("Use " + expected + " for this resource.");
+        }
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            if (length != null && Long.parseLong(length.trim()) > MAX_FORM_BYTES) {
+                throw new PayloadTooLargeException("Form body is over " + MAX_FORM_BYTES + " bytes.");
+            }
+            try (InputStream in = exchange.getRequestBody()) {
+                // Chunked bodies carry no length, so read one byte past the limit rather than parse a fragment
+                byte[] form = in.readNBytes(MAX_FORM_BYTES + 1);
+                if (form.length > MAX_FORM_BYTES) {
+                    throw new PayloadTooLargeException("Form body is over " + MAX_FORM_BYTES + " bytes.");
+                }
+                parseForm(new String(form, StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+    }
+
+    private static class Session {
+        private final Cart cart;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long lastAccess = System.currentTimeMillis();
+        private boolean expired;
+
+        private Session(Cart cart) {
+            this.cart = cart;
+        }
+    }
+
+    private static class NotFoundException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    private static class PayloadTooLargeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private PayloadTooLargeException(String message) {
+            super(message);
+        }
+    }
+}
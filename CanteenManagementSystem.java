@@ -1,24 +1,36 @@
 import java.awt.*;
-import java.io.FileWriter;
+import java.awt.event.ActionListener;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javax.swing.*;
 import javax.swing.border.Border;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
-import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableCellEditor;
+import javax.swing.table.TableCellRenderer;
 
 interface Payable {
     boolean processPayment(Order order);
 }
 
-abstract class Payment {
+abstract class Payment implements Payable {
     protected String paymentID;
     protected double amount;
 
@@ -26,6 +38,16 @@ abstract class Payment {
         this.paymentID = paymentID;
         this.amount = amount;
     }
+
+    public abstract PaymentMethod getMethod();
+
+    public abstract boolean isAuthorized();
+
+    public abstract String getDeclineMessage();
+
+    public String getPaymentID() { return paymentID; }
+    public double getAmount() { return amount; }
+    public long getAmountMinor() { return Money.toMinor(amount); }
 }
 
 class CashPayment extends Payment implements Payable {
@@ -41,20 +63,32 @@ class CashPayment extends Payment implements Payable {
 
     @Override
     public boolean processPayment(Order order) {
-        if (cashReceived >= amount) {
-            order.getVendor().updateEarnings(amount);
+        if (isAuthorized()) {
+            order.getVendor().updateEarnings(getMethod(), getAmountMinor());
             return true;
         }
         return false;
     }
 
+    @Override
+    public boolean isAuthorized() {
+        return cashReceived >= amount;
+    }
+
     public double calculateChange() {
         return cashReceived - amount;
     }
+
+    @Override
+    public PaymentMethod getMethod() { return PaymentMethod.CASH; }
+
+    @Override
+    public String getDeclineMessage() { return "Insufficient cash."; }
 }
 
 class DigitalPayment extends Payment implements Payable {
     private String transactionID;
+    private volatile Boolean gatewayDecision;
 
     public DigitalPayment(String paymentID, double amount, String transactionID) {
         super(paymentID, amount);
@@ -66,12 +100,30 @@ class DigitalPayment extends Payment implements Payable {
 
     @Override
     public boolean processPayment(Order order) {
-        if (transactionID.startsWith("TXN")) {
-            order.getVendor().updateEarnings(amount);
+        if (isAuthorized()) {
+            order.getVendor().updateEarnings(getMethod(), getAmountMinor());
             return true;
         }
         return false;
     }
+
+    @Override
+    public boolean isAuthorized() {
+        Boolean decision = gatewayDecision;
+        return decision != null ? decision : transactionID.startsWith("TXN");
+    }
+
+    void recordGatewayDecision(boolean approved) {
+        gatewayDecision = approved;
+    }
+
+    public String getTransactionID() { return transactionID; }
+
+    @Override
+    public PaymentMethod getMethod() { return PaymentMethod.DIGITAL; }
+
+    @Override
+    public String getDeclineMessage() { return "Invalid transaction ID."; }
 }
 
 class PaymentException extends Exception {
@@ -80,122 +132,423 @@ class PaymentException extends Exception {
     }
 }
 
+class SoldOutException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public SoldOutException(FoodItem item) {
+        super(item.getName() + " is sold out.");
+    }
+}
+
 class FoodItem {
+    public static final long DEFAULT_PREP_MILLIS = 3000;
+
     private String itemID;
     private String name;
     private double price;
+    private long priceMinor;
+    private String formattedPrice;
     private String category;
+    private String station;
+    private long prepTimeMillis;
+    private int ordinal = -1;
+    private StockCounter stock = new StockCounter();
+    // The version first put on the menu; every repriced version of the dish points back to it
+    private FoodItem baseItem = this;
 
     public FoodItem(String itemID, String name, double price, String category) {
+        this(itemID, name, price, category, category, DEFAULT_PREP_MILLIS);
+    }
+
+    public FoodItem(String itemID, String name, double price, String category, String station, long prepTimeMillis) {
         if (price < 0) {
             throw new IllegalArgumentException("Price cannot be negative.");
         }
+        if (prepTimeMillis < 0) {
+            throw new IllegalArgumentException("Prep time cannot be negative.");
+        }
         this.itemID = itemID;
         this.name = name;
         this.price = price;
+        this.priceMinor = Money.toMinor(price);
+        this.formattedPrice = Money.format(priceMinor);
         this.category = category;
+        this.station = station;
+        this.prepTimeMillis = prepTimeMillis;
+    }
+
+    void assignOrdinal(int ordinal) {
+        if (this.ordinal >= 0) {
+            throw new IllegalStateException("Item " + itemID + " already has ordinal " + this.ordinal + ".");
+        }
+        this.ordinal = ordinal;
+    }
+
+    // A repriced item is the same dish, so it sells from the same stock and is tracked as the same item
+    void replaces(FoodItem previous) {
+        this.stock = previous.stock;
+        this.baseItem = previous.baseItem;
     }
 
     public String getName() { return name; }
     public double getPrice() { return price; }
+    public long getPriceMinor() { return priceMinor; }
+    public String getFormattedPrice() { return formattedPrice; }
     public String getCategory() { return category; }
+    public String getStation() { return station; }
+    public long getPrepTimeMillis() { return prepTimeMillis; }
     public String getItemID() { return itemID; }
+    public int getOrdinal() { return ordinal; }
+    public StockCounter getStock() { return stock; }
+    public FoodItem getBaseItem() { return baseItem; }
 }
 
 class Cart {
     private String cartID;
     private Customer customer;
-    private Map<FoodItem, Integer> items;
+    // Quantities are indexed by the menu-wide item ordinal; lines keep the ordinals in the order they were added
+    private int[] quantities;
+    private FoodItem[] itemsByOrdinal;
+    private int[] lineOrdinals;
+    private int lineCount;
+    private long totalMinor;
+    private long menuVersion;
+    private long revision;
+    // Sub-carts built for a split checkout ride on the parent cart's reservations
+    private final boolean holdsStock;
+    // Set while a checkout is in flight; the lines being paid for must not change under it
+    private volatile boolean checkingOut;
+    // Owners hand an idle cart's reservations back to the shelf once this is old enough
+    private volatile long lastChangedMillis = System.currentTimeMillis();
+    private volatile CartListener[] listeners = new CartListener[0];
 
     public Cart(String cartID, Customer customer) {
+        this(cartID, customer, true);
+    }
+
+    Cart(String cartID, Customer customer, boolean holdsStock) {
         this.cartID = cartID;
         this.customer = customer;
-        this.items = new HashMap<>();
+        this.holdsStock = holdsStock;
+        this.quantities = new int[16];
+        this.itemsByOrdinal = new FoodItem[16];
+        this.lineOrdinals = new int[8];
     }
 
     public void addItem(FoodItem item) {
-        items.put(item, items.getOrDefault(item, 0) + 1);
+        addItem(item, 1);
     }
 
-    public void removeItem(FoodItem item) {
-        if (items.containsKey(item)) {
-            int quantity = items.get(item);
-            if (quantity > 1) {
-                items.put(item, quantity - 1);
-            } else {
-                items.remove(item);
+    // All or nothing: the whole quantity is reserved in one step, so a sold-out item leaves the cart as it was
+    public void addItem(FoodItem item, int quantity) {
+        checkEditable();
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be positive.");
+        }
+        // Resolved before reserving, so an item that is not on a menu cannot strand a unit
+        int ordinal = ordinalOf(item);
+        if (holdsStock && !item.getStock().reserve(quantity)) {
+            throw new SoldOutException(item);
+        }
+        ensureOrdinalCapacity(ordinal);
+        if (quantities[ordinal] == 0) {
+            if (lineCount == lineOrdinals.length) {
+                lineOrdinals = Arrays.copyOf(lineOrdinals, lineCount * 2);
             }
+            lineOrdinals[lineCount++] = ordinal;
+            itemsByOrdinal[ordinal] = item;
         }
+        quantities[ordinal] += quantity;
+        totalMinor += item.getPriceMinor() * quantity;
+        menuVersion = Menu.getLatestVersion();
+        revision++;
+        lastChangedMillis = System.currentTimeMillis();
+        fireQuantityChanged(item, quantities[ordinal]);
+    }
+
+    public void removeItem(FoodItem item) {
+        checkEditable();
+        drop(item, 1, false);
     }
 
     public void removeAll(FoodItem item) {
-        items.remove(item);
+        checkEditable();
+        drop(item, Integer.MAX_VALUE, false);
     }
 
     public void clearCart() {
-        items.clear();
+        checkEditable();
+        empty(false);
+    }
+
+    void beginCheckout() {
+        checkEditable();
+        checkingOut = true;
+    }
+
+    void endCheckout() {
+        checkingOut = false;
+    }
+
+    public boolean isCheckingOut() {
+        return checkingOut;
+    }
+
+    private void checkEditable() {
+        if (checkingOut) {
+            throw new IllegalStateException("Cart " + cartID + " is being checked out.");
+        }
+    }
+
+    // Paid lines leave the cart with their reservations turned into sales instead of handed back
+    void confirmItem(FoodItem item, int quantity) {
+        drop(item, quantity, true);
+    }
+
+    void completeCheckout() {
+        empty(true);
+    }
+
+    private void drop(FoodItem item, int quantity, boolean sold) {
+        int ordinal = item.getOrdinal();
+        if (ordinal < 0 || ordinal >= quantities.length || quantities[ordinal] == 0) {
+            return;
+        }
+        int dropped = Math.min(quantity, quantities[ordinal]);
+        int line = indexOf(item);
+        settleStock(item, dropped, sold);
+        totalMinor -= item.getPriceMinor() * dropped;
+        quantities[ordinal] -= dropped;
+        if (quantities[ordinal] == 0) {
+            itemsByOrdinal[ordinal] = null;
+            System.arraycopy(lineOrdinals, line + 1, lineOrdinals, line, lineCount - line - 1);
+            lineCount--;
+        }
+        revision++;
+        lastChangedMillis = System.currentTimeMillis();
+        fireQuantityChanged(item, quantities[ordinal]);
+    }
+
+    private void empty(boolean sold) {
+        for (int line = 0; line < lineCount; line++) {
+            settleStock(itemsByOrdinal[lineOrdinals[line]], quantities[lineOrdinals[line]], sold);
+            quantities[lineOrdinals[line]] = 0;
+            itemsByOrdinal[lineOrdinals[line]] = null;
+        }
+        lineCount = 0;
+        totalMinor = 0;
+        revision++;
+        lastChangedMillis = System.currentTimeMillis();
+        for (CartListener listener : listeners) {
+            listener.cartCleared(this);
+        }
+    }
+
+    private void settleStock(FoodItem item, int quantity, boolean sold) {
+        if (!holdsStock) {
+            return;
+        }
+        if (sold) {
+            item.getStock().confirm(quantity);
+        } else {
+            item.getStock().release(quantity);
+        }
+    }
+
+    public synchronized void addListener(CartListener listener) {
+        CartListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+
+    private void fireQuantityChanged(FoodItem item, int quantity) {
+        for (CartListener listener : listeners) {
+            listener.quantityChanged(this, item, quantity);
+        }
     }
 
     public boolean isEmpty() {
-        return items.isEmpty();
+        return lineCount == 0;
     }
 
     public double calculateTotal() {
-        return items.entrySet().stream()
-                .mapToDouble(e -> e.getKey().getPrice() * e.getValue())
-                .sum();
+        return Money.toMajor(totalMinor);
     }
 
-    public Map<FoodItem, Integer> getItems() { return items; }
+    public long getTotalMinor() { return totalMinor; }
+    public long getMenuVersion() { return menuVersion; }
+    public long getRevision() { return revision; }
+    public long getLastChangedMillis() { return lastChangedMillis; }
+
+    void recordMenuVersion(long menuVersion) {
+        this.menuVersion = menuVersion;
+    }
+    public Customer getCustomer() { return customer; }
+    public String getCartID() { return cartID; }
+    public int getLineCount() { return lineCount; }
+    public FoodItem getLineItem(int line) { return itemsByOrdinal[lineOrdinals[line]]; }
+    public int getLineQuantity(int line) { return quantities[lineOrdinals[line]]; }
+
+    public int getItemQuantity(FoodItem item) {
+        int ordinal = item.getOrdinal();
+        return ordinal < 0 || ordinal >= quantities.length ? 0 : quantities[ordinal];
+    }
+
+    public int indexOf(FoodItem item) {
+        if (getItemQuantity(item) == 0) {
+            return -1;
+        }
+        for (int line = 0; line < lineCount; line++) {
+            if (lineOrdinals[line] == item.getOrdinal()) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    public Map<FoodItem, Integer> getItems() {
+        Map<FoodItem, Integer> items = new LinkedHashMap<>();
+        for (int line = 0; line < lineCount; line++) {
+            items.put(getLineItem(line), getLineQuantity(line));
+        }
+        return items;
+    }
+
+    private static int ordinalOf(FoodItem item) {
+        if (item.getOrdinal() < 0) {
+            throw new IllegalArgumentException("Item " + item.getName() + " is not on a menu.");
+        }
+        return item.getOrdinal();
+    }
+
+    private void ensureOrdinalCapacity(int ordinal) {
+        if (ordinal >= quantities.length) {
+            int size = Math.max(quantities.length * 2, ordinal + 1);
+            quantities = Arrays.copyOf(quantities, size);
+            itemsByOrdinal = Arrays.copyOf(itemsByOrdinal, size);
+        }
+    }
 }
 
 class Order {
-    private static int orderCounter = 1;
+    private static final LatencyHistogram LIFECYCLE_LATENCY = Metrics.getDefault().histogram(Metrics.ORDER_LIFECYCLE);
+
     private String orderID;
     private Customer customer;
     private Vendor vendor;
     private Map<FoodItem, Integer> items;
-    private String status;
-    private JLabel statusLabel;
-    private long cookingTime = 5000;
-    private Timer timer;
+    private volatile String status;
+    private volatile PaymentMethod paymentMethod;
+    private volatile long menuVersion;
+    private volatile Kitchen.Ticket kitchenTicket;
+    private volatile ScheduledFuture<?> cookingTicks;
+    private volatile boolean stockSold;
+    private final long createdNanos = System.nanoTime();
+    private final List<OrderListener> listeners = new CopyOnWriteArrayList<>();
+
+    public Order(Customer customer, Vendor vendor, Map<FoodItem, Integer> items) {
+        this(IdGenerator.getDefault().nextId("ORD-"), customer, vendor, items, "Pending");
+    }
 
-    public Order(Customer customer, Vendor vendor, Map<FoodItem, Integer> items, JLabel statusLabel) {
-        this.orderID = "ORD-" + orderCounter++;
+    Order(String orderID, Customer customer, Vendor vendor, Map<FoodItem, Integer> items, String status) {
+        this.orderID = orderID;
         this.customer = customer;
         this.vendor = vendor;
-        this.items = new HashMap<>(items);
-        this.status = "Pending";
-        this.statusLabel = statusLabel;
-        this.timer = new Timer();
-        startCookingTimer();
+        this.items = new LinkedHashMap<>(items);
+        this.status = status;
     }
 
-    private void startCookingTimer() {
-        long startTime = System.currentTimeMillis();
-        timer.scheduleAtFixedRate(new TimerTask() {
+    public synchronized void startPreparation() {
+        if (kitchenTicket != null || !isOpen()) {
+            return;
+        }
+        cookingTicks = KitchenScheduler.getDefault().scheduleTicks(() -> {
+            Kitchen.Ticket ticket = kitchenTicket;
+            if (ticket == null || !isOpen()) {
+                return;
+            }
+            for (OrderListener listener : listeners) {
+                listener.orderProgress(this, ticket.getRemainingMillis());
+            }
+        }, 1000);
+        kitchenTicket = vendor.getKitchen().submit(orderID, items, new Kitchen.TicketListener() {
+            @Override
+            public void started(Kitchen.Ticket ticket) {
+                updateStatus("Preparing");
+            }
+
             @Override
-            public void run() {
-                long elapsed = System.currentTimeMillis() - startTime;
-                long remaining = cookingTime - elapsed;
-                if (remaining <= 0) {
-                    status = "Completed";
-                    SwingUtilities.invokeLater(() -> {
-                        statusLabel.setText("Order " + orderID + ": " + status);
-                        JOptionPane.showMessageDialog(null, "Order " + orderID + " is ready!", "Order Ready", JOptionPane.INFORMATION_MESSAGE);
-                    });
-                    timer.cancel();
-                } else {
-                    SwingUtilities.invokeLater(() -> {
-                        statusLabel.setText("Order " + orderID + ": " + status + " (Time remaining: " + (remaining / 1000) + "s)");
-                    });
+            public void finished(Kitchen.Ticket ticket) {
+                if (updateStatus("Completed")) {
+                    KitchenScheduler.getDefault().cancel(cookingTicks);
+                }
+            }
+        });
+    }
+
+    public synchronized void cancelOrder() {
+        if (updateStatus("Cancelled")) {
+            KitchenScheduler.getDefault().cancel(cookingTicks);
+            vendor.getKitchen().cancel(kitchenTicket);
+            if (stockSold) {
+                for (Map.Entry<FoodItem, Integer> line : items.entrySet()) {
+                    line.getKey().getStock().restock(line.getValue());
                 }
             }
-        }, 0, 1000);
+        }
+    }
+
+    private synchronized boolean updateStatus(String newStatus) {
+        if (!isOpen()) {
+            return false;
+        }
+        String previousStatus = status;
+        status = newStatus;
+        if (newStatus.equals("Completed")) {
+            LIFECYCLE_LATENCY.recordSince(createdNanos);
+            vendor.orderCompleted(this);
+        }
+        for (OrderListener listener : listeners) {
+            listener.orderStatusChanged(this, previousStatus);
+        }
+        return true;
+    }
+
+    void recordPaymentMethod(PaymentMethod paymentMethod) {
+        this.paymentMethod = paymentMethod;
+    }
+
+    void recordMenuVersion(long menuVersion) {
+        this.menuVersion = menuVersion;
+    }
+
+    // Only a paid order took units off the shelf, so only a paid order puts them back when cancelled
+    void recordStockSold() {
+        this.stockSold = true;
+    }
+
+    public void addListener(OrderListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OrderListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean isOpen() {
+        return !status.equals("Completed") && !status.equals("Cancelled");
     }
 
     public String getOrderID() { return orderID; }
     public String getStatus() { return status; }
+    public PaymentMethod getPaymentMethod() { return paymentMethod; }
+    public long getMenuVersion() { return menuVersion; }
+
+    public long getEtaMillis() {
+        Kitchen.Ticket ticket = kitchenTicket;
+        return ticket == null ? 0 : ticket.getEtaMillis();
+    }
+
     public Map<FoodItem, Integer> getItems() { return items; }
     public Vendor getVendor() { return vendor; }
     public Customer getCustomer() { return customer; }
@@ -220,15 +573,18 @@ class Feedback {
     public String getComments() { return comments; }
     public Order getOrder() { return order; }
 
-    public void saveToFile() {
-        try (FileWriter writer = new FileWriter("feedback.txt", true)) {
-            writer.write("Feedback ID: " + feedbackID + "\n");
-            writer.write("Order ID: " + order.getOrderID() + "\n");
-            writer.write("Rating: " + rating + "\n");
-            writer.write("Comments: " + comments + "\n");
-            writer.write("------------------------\n");
+    public CompletableFuture<Void> saveToFile() {
+        String record = "Feedback ID: " + feedbackID + "\n"
+                + "Order ID: " + order.getOrderID() + "\n"
+                + "Rating: " + rating + "\n"
+                + "Comments: " + comments + "\n"
+                + "------------------------\n";
+        try {
+            return FeedbackJournal.getDefault().append(record);
         } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error saving feedback: " + e.getMessage(), "File Error", JOptionPane.ERROR_MESSAGE);
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
         }
     }
 }
@@ -238,20 +594,37 @@ class Customer {
     private String name;
     private List<Order> orderHistory;
     private List<Feedback> feedbackList;
+    private Map<String, Feedback> feedbackByOrder;
 
     public Customer(String customerID, String name) {
         this.customerID = customerID;
         this.name = name;
         this.orderHistory = new ArrayList<>();
         this.feedbackList = new ArrayList<>();
+        this.feedbackByOrder = new ConcurrentHashMap<>();
     }
 
-    public void placeOrder(Order order) {
+    public synchronized void placeOrder(Order order) {
         orderHistory.add(order);
     }
 
-    public void submitFeedback(Feedback feedback) {
+    public synchronized void submitFeedback(Feedback feedback) {
         feedbackList.add(feedback);
+        feedbackByOrder.put(feedback.getOrder().getOrderID(), feedback);
+    }
+
+    public synchronized List<Order> getOrderHistoryPage(int offset, int limit) {
+        int from = Math.min(offset, orderHistory.size());
+        int to = Math.min(from + limit, orderHistory.size());
+        return new ArrayList<>(orderHistory.subList(from, to));
+    }
+
+    public synchronized int getOrderCount() {
+        return orderHistory.size();
+    }
+
+    public Feedback getFeedbackForOrder(String orderID) {
+        return feedbackByOrder.get(orderID);
     }
 
     public List<Order> getOrderHistory() { return orderHistory; }
@@ -264,15 +637,21 @@ class Vendor {
     private String vendorID;
     private String name;
     private Menu menu;
-    private double earnings;
+    private EarningsLedger ledger;
+    private VendorAnalytics analytics;
+    private Kitchen kitchen;
     private List<Feedback> feedbackList;
+    private Map<String, Feedback> feedbackByOrder;
 
     public Vendor(String vendorID, String name) {
         this.vendorID = vendorID;
         this.name = name;
         this.menu = new Menu();
-        this.earnings = 0.0;
+        this.ledger = new EarningsLedger();
+        this.analytics = new VendorAnalytics();
+        this.kitchen = new Kitchen();
         this.feedbackList = new ArrayList<>();
+        this.feedbackByOrder = new ConcurrentHashMap<>();
     }
 
     public void addFoodItem(FoodItem item) {
@@ -283,12 +662,31 @@ class Vendor {
     public String getName() { return name; }
     public String getVendorID() { return vendorID; }
 
-    public void updateEarnings(double amount) {
-        earnings += amount;
+    public void updateEarnings(PaymentMethod method, long amountMinor) {
+        ledger.record(method, amountMinor);
+    }
+
+    public void updateEarnings(PaymentMethod method, long amountMinor, int payments) {
+        ledger.record(method, LocalTime.now().getHour(), amountMinor, payments);
+    }
+
+    public EarningsLedger getLedger() { return ledger; }
+    public VendorAnalytics getAnalytics() { return analytics; }
+    public Kitchen getKitchen() { return kitchen; }
+    public double getEarnings() { return Money.toMajor(ledger.getTotal()); }
+
+    public void orderCompleted(Order order) {
+        analytics.orderCompleted(order);
     }
 
-    public void addFeedback(Feedback feedback) {
+    public synchronized void addFeedback(Feedback feedback) {
         feedbackList.add(feedback);
+        feedbackByOrder.put(feedback.getOrder().getOrderID(), feedback);
+        analytics.feedbackAdded(feedback);
+    }
+
+    public Feedback getFeedbackForOrder(String orderID) {
+        return feedbackByOrder.get(orderID);
     }
 }
 
@@ -303,15 +701,38 @@ class GUIHelper {
 }
 
 public class CanteenManagementSystem {
+    private static final long CART_IDLE_MILLIS = Long.getLong("canteen.cart.idleMillis", TimeUnit.MINUTES.toMillis(15));
+
     private JFrame frame;
     private Vendor vendor;
     private Customer customer;
     private Cart cart;
+    private VendorRegistry registry;
     private JTable cartTable;
-    private DefaultTableModel cartModel;
+    private CartTableModel cartModel;
+    private JButton checkoutBtn;
+    private JButton clearCartBtn;
+    private PaymentAuthorizer paymentAuthorizer;
+    private PersistenceManager persistence;
+    private SalesLedger salesLedger;
+    private CanteenHttpApi httpApi;
     private JLabel grandTotalLabel;
     private JTextField searchField;
+    private JComboBox<String> categoryBox;
+    private JComboBox<String> vendorBox;
+    private JPanel menuItemsPanel;
+    private Timer searchDebounce;
+    private Map<FoodItem, JButton> menuButtons = new HashMap<>();
+    private List<FoodItem> visibleItems;
+    private String lastQuery;
+    private String lastCategory;
+    private long lastMenuVersion;
     private JLabel orderStatusLabel;
+    private OrderBoardModel orderBoard;
+    private JDialog orderBoardDialog;
+    private final ArrayDeque<String> notifications = new ArrayDeque<>();
+    private Timer notificationTimer;
+    private Timer cartExpiry;
 
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> new CanteenManagementSystem().createAndShowGUI());
@@ -321,10 +742,74 @@ public class CanteenManagementSystem {
         this.vendor = new Vendor("V001", "Abhyasi Cafe");
         this.customer = new Customer("C001", "John Doe");
         this.cart = new Cart("Cart001", customer);
+        this.registry = new VendorRegistry();
+        PaymentGateway gateway = new StubPaymentGateway(
+            Long.getLong("canteen.gateway.minLatencyMillis", 50L),
+            Long.getLong("canteen.gateway.maxLatencyMillis", 300L),
+            Double.parseDouble(System.getProperty("canteen.gateway.failureRate", "0")));
+        this.paymentAuthorizer = new PaymentAuthorizer(gateway, 2000, 16, 3, 100, 5, 10000);
+
+        vendor.getMenu().addItem(new FoodItem("F001", "Veg Momo", 12.5, "Snacks", "Steamer", 4000));
+        vendor.getMenu().addItem(new FoodItem("F002", "Burger", 15.0, "Snacks", "Grill", 5000));
+        vendor.getMenu().addItem(new FoodItem("F003", "Cold Coffee", 10.0, "Beverages", "Bar", 1500));
+        vendor.getKitchen().addStation("Steamer", 2);
+        vendor.getKitchen().addStation("Grill", 1);
+        vendor.getKitchen().addStation("Bar", 1);
+        vendor.getMenu().findItemByID("F002").getStock().setOnHand(Integer.getInteger("canteen.stock.burgers", 40));
+        registry.register(vendor);
+
+        Vendor chaiStall = new Vendor("V002", "Chai Point");
+        chaiStall.getMenu().addItem(new FoodItem("F101", "Masala Chai", 5.0, "Beverages", "Stove", 1500));
+        chaiStall.getMenu().addItem(new FoodItem("F102", "Samosa", 6.0, "Snacks", "Fryer", 2500));
+        registry.register(chaiStall);
+        restoreState();
+        startHttpApi();
+    }
 
-        vendor.getMenu().addItem(new FoodItem("F001", "Veg Momo", 12.5, "Snacks"));
-        vendor.getMenu().addItem(new FoodItem("F002", "Burger", 15.0, "Snacks"));
-        vendor.getMenu().addItem(new FoodItem("F003", "Cold Coffee", 10.0, "Beverages"));
+    // Kiosks and phones order through the same registry as this terminal when canteen.http.port is set
+    private void startHttpApi() {
+        Integer port = Integer.getInteger("canteen.http.port");
+        if (port == null) {
+            return;
+        }
+        httpApi = new CanteenHttpApi(registry, paymentAuthorizer);
+        try {
+            httpApi.start(port);
+        } catch (IOException e) {
+            httpApi = null;
+            GUIHelper.showMessage("Error", "Could not start the ordering API: " + e.getMessage(), JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void restoreState() {
+        Path dataDirectory = Paths.get(System.getProperty("canteen.data", "canteen-data"));
+        try {
+            // Attached first so orders restored mid-cooking still land in the ledger when they complete
+            salesLedger = new SalesLedger(dataDirectory.resolve("sales"));
+            registry.addListener(salesLedger);
+        } catch (IOException e) {
+            GUIHelper.showMessage("Error", "Could not open the sales ledger: " + e.getMessage(), JOptionPane.ERROR_MESSAGE);
+        }
+        if (System.getProperty("canteen.metrics.file") == null) {
+            Metrics.getDefault().startFileDump(dataDirectory.resolve("metrics.log"), 60_000);
+        }
+        persistence = new PersistenceManager(dataDirectory,
+            PersistenceManager.Durability.valueOf(System.getProperty("canteen.persistence.durability", "GROUP_COMMIT")),
+            Long.getLong("canteen.persistence.snapshotEvery", 10000L));
+        try {
+            PersistentState state = persistence.recover();
+            Map<String, Customer> customers = new HashMap<>();
+            customers.put(customer.getCustomerID(), customer);
+            Cart restoredCart = state.restoreInto(registry, customers).get(cart.getCartID());
+            if (restoredCart != null) {
+                cart = restoredCart;
+            }
+            persistence.attach(registry);
+            persistence.attach(cart);
+        } catch (IOException e) {
+            persistence = null;
+            GUIHelper.showMessage("Error", "Could not restore saved data: " + e.getMessage(), JOptionPane.ERROR_MESSAGE);
+        }
     }
 
     private void createAndShowGUI() {
@@ -342,33 +827,50 @@ public class CanteenManagementSystem {
         menuPanel.setBorder(BorderFactory.createTitledBorder(
             BorderFactory.createLineBorder(Color.GRAY), "Menu", 0, 0, labelFont));
 
+        searchDebounce = new Timer(150, e -> filterMenu());
+        searchDebounce.setRepeats(false);
+
         searchField = new JTextField(15);
         searchField.setFont(buttonFont);
         searchField.getDocument().addDocumentListener(new DocumentListener() {
-            public void insertUpdate(DocumentEvent e) { filterMenu(); }
-            public void removeUpdate(DocumentEvent e) { filterMenu(); }
-            public void changedUpdate(DocumentEvent e) { filterMenu(); }
+            public void insertUpdate(DocumentEvent e) { searchDebounce.restart(); }
+            public void removeUpdate(DocumentEvent e) { searchDebounce.restart(); }
+            public void changedUpdate(DocumentEvent e) { searchDebounce.restart(); }
         });
-        menuPanel.add(searchField, BorderLayout.NORTH);
 
-        JPanel menuItemsPanel = new JPanel(new GridLayout(0, 1, 5, 5));
+        vendorBox = new JComboBox<>();
+        for (VendorShard shard : registry.getShards()) {
+            vendorBox.addItem(shard.getVendor().getName());
+        }
+        vendorBox.setFont(buttonFont);
+        vendorBox.addActionListener(e -> switchVendor(registry.getShards().get(vendorBox.getSelectedIndex()).getVendor()));
+
+        categoryBox = new JComboBox<>();
+        fillCategories();
+        categoryBox.setFont(buttonFont);
+        categoryBox.addActionListener(e -> filterMenu());
+
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 5));
+        searchPanel.setOpaque(false);
+        searchPanel.add(vendorBox, BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        searchPanel.add(categoryBox, BorderLayout.EAST);
+        menuPanel.add(searchPanel, BorderLayout.NORTH);
+
+        menuItemsPanel = new JPanel(new GridLayout(0, 1, 5, 5));
         menuItemsPanel.setOpaque(false);
         updateMenuItems(menuItemsPanel);
         menuPanel.add(new JScrollPane(menuItemsPanel), BorderLayout.CENTER);
 
         // Cart Panel
-        cartModel = new DefaultTableModel(new Object[]{"Item", "Quantity", "Price", "Total", "Actions"}, 0);
-        cartTable = new JTable(cartModel) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 4;
-            }
-        };
+        cartModel = new CartTableModel(cart);
+        cartModel.addTableModelListener(e -> updateGrandTotal());
+        cartTable = new JTable(cartModel);
         cartTable.setRowHeight(35);
         cartTable.setFont(buttonFont);
         cartTable.getTableHeader().setFont(labelFont);
-        cartTable.getColumnModel().getColumn(4).setCellRenderer(new ButtonRenderer());
-        cartTable.getColumnModel().getColumn(4).setCellEditor(new ButtonEditor(new JCheckBox()));
+        cartTable.getColumnModel().getColumn(CartTableModel.ACTIONS_COLUMN).setCellRenderer(new ButtonRenderer());
+        cartTable.getColumnModel().getColumn(CartTableModel.ACTIONS_COLUMN).setCellEditor(new ButtonEditor());
         JScrollPane cartScrollPane = new JScrollPane(cartTable);
         cartScrollPane.setOpaque(false);
         cartScrollPane.setBorder(BorderFactory.createTitledBorder(
@@ -380,8 +882,15 @@ public class CanteenManagementSystem {
 
         orderStatusLabel = new JLabel("No orders yet.");
         orderStatusLabel.setFont(buttonFont);
-
-        JButton checkoutBtn = new JButton("Proceed to Checkout");
+        notificationTimer = new Timer(3000, e -> showNextNotification());
+        cartExpiry = new Timer(60_000, e -> expireIdleCart());
+        cartExpiry.start();
+        orderBoard = new OrderBoardModel();
+        registry.addListener(new OrderStatusBus(SwingUtilities::invokeLater, OrderStatusBus.DEFAULT_FRAME_MILLIS,
+            this::ordersChanged));
+        registry.addListener(new SwingOrderListener());
+
+        checkoutBtn = new JButton("Proceed to Checkout");
         checkoutBtn.setFont(buttonFont);
         checkoutBtn.setBackground(new Color(255, 165, 0));
         checkoutBtn.setForeground(Color.WHITE);
@@ -402,13 +911,12 @@ public class CanteenManagementSystem {
         JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
         controlPanel.setOpaque(false);
 
-        JButton clearCartBtn = new JButton("Clear Cart");
+        clearCartBtn = new JButton("Clear Cart");
         clearCartBtn.setFont(buttonFont);
         clearCartBtn.setBackground(new Color(255, 99, 71));
         clearCartBtn.setForeground(Color.WHITE);
         clearCartBtn.addActionListener(e -> {
-            cart.clearCart();
-            updateCartTable();
+            cartModel.clear();
             GUIHelper.showMessage("Cart Cleared", "All items removed from cart.");
         });
 
@@ -417,8 +925,14 @@ public class CanteenManagementSystem {
         viewHistoryBtn.setBackground(new Color(255, 215, 0));
         viewHistoryBtn.addActionListener(e -> viewOrderHistoryWithFeedback());
 
+        JButton orderBoardBtn = new JButton("Order Board");
+        orderBoardBtn.setFont(buttonFont);
+        orderBoardBtn.setBackground(new Color(144, 238, 144));
+        orderBoardBtn.addActionListener(e -> showOrderBoard());
+
         controlPanel.add(clearCartBtn);
         controlPanel.add(viewHistoryBtn);
+        controlPanel.add(orderBoardBtn);
 
         // Assemble Main Frame
         frame.add(menuPanel, BorderLayout.WEST);
@@ -427,79 +941,115 @@ public class CanteenManagementSystem {
 
         frame.setSize(900, 650);
         frame.setVisible(true);
-        updateCartTable();
+        updateGrandTotal();
     }
 
     private void updateMenuItems(JPanel panel) {
+        String query = searchField.getText();
+        String category = categoryBox.getSelectedIndex() <= 0 ? null : (String) categoryBox.getSelectedItem();
+        Menu.Snapshot menu = vendor.getMenu().getSnapshot();
+        // Typing more of the same word can only narrow the previous results, as long as the menu itself has not changed
+        if (visibleItems != null && lastQuery != null && Objects.equals(category, lastCategory)
+                && menu.getVersion() == lastMenuVersion && Menu.normalize(query).contains(Menu.normalize(lastQuery))) {
+            visibleItems = menu.refine(visibleItems, query, category);
+        } else {
+            visibleItems = menu.search(query, category);
+        }
+        lastQuery = query;
+        lastCategory = category;
+        lastMenuVersion = menu.getVersion();
+
         panel.removeAll();
-        String searchText = searchField.getText().toLowerCase();
-        for (FoodItem item : vendor.getMenu().getItems()) {
-            if (searchText.isEmpty() || item.getName().toLowerCase().contains(searchText)) {
-                JButton btn = new JButton(item.getName() + " - ¥" + item.getPrice());
-                btn.setBackground(new Color(100, 149, 237));
-                btn.setForeground(Color.WHITE);
-                btn.addActionListener(e -> {
-                    cart.addItem(item);
-                    updateCartTable();
-                });
-                panel.add(btn);
-            }
+        for (FoodItem item : visibleItems) {
+            panel.add(menuButton(item));
         }
         panel.revalidate();
         panel.repaint();
     }
 
-    private void filterMenu() {
-        updateMenuItems((JPanel) ((JScrollPane) frame.getContentPane().getComponent(0)).getViewport().getView());
+    // One button per dish; a price change replaces the button instead of adding another
+    private JButton menuButton(FoodItem item) {
+        JButton btn = menuButtons.get(item.getBaseItem());
+        if (btn == null || btn.getClientProperty(FoodItem.class) != item) {
+            btn = createMenuButton(item);
+            menuButtons.put(item.getBaseItem(), btn);
+        }
+        return btn;
     }
 
-    private void updateCartTable() {
-        cartModel.setRowCount(0);
-        for (Map.Entry<FoodItem, Integer> entry : cart.getItems().entrySet()) {
-            FoodItem item = entry.getKey();
-            int quantity = entry.getValue();
-            double price = item.getPrice();
-            double total = price * quantity;
+    private JButton createMenuButton(FoodItem item) {
+        JButton btn = new JButton(item.getName() + " - ¥" + item.getPrice());
+        btn.setBackground(new Color(100, 149, 237));
+        btn.setForeground(Color.WHITE);
+        btn.putClientProperty(FoodItem.class, item);
+        btn.addActionListener(e -> addToCart(item));
+        return btn;
+    }
 
-            JPanel buttonPanel = new JPanel(new FlowLayout());
-            JButton plusBtn = new JButton("+");
-            plusBtn.addActionListener(e -> {
-                cart.addItem(item);
-                updateCartTable();
-            });
-            
-            JButton minusBtn = new JButton("-");
-            minusBtn.addActionListener(e -> {
-                cart.removeItem(item);
-                updateCartTable();
-            });
+    private void addToCart(FoodItem item) {
+        try {
+            cartModel.addItem(item);
+        } catch (SoldOutException e) {
+            GUIHelper.showMessage("Sold Out", e.getMessage(), JOptionPane.WARNING_MESSAGE);
+        } catch (IllegalStateException e) {
+            GUIHelper.showMessage("Checkout in Progress", e.getMessage(), JOptionPane.WARNING_MESSAGE);
+        }
+    }
 
-            JButton removeBtn = new JButton("X");
-            removeBtn.addActionListener(e -> {
-                cart.removeAll(item);
-                updateCartTable();
-            });
+    // The cart is frozen while its checkout is in flight, so nothing here may edit it
+    private void setCartEditable(boolean editable) {
+        if (!editable && cartTable.isEditing()) {
+            cartTable.getCellEditor().cancelCellEditing();
+        }
+        cartTable.setEnabled(editable);
+        clearCartBtn.setEnabled(editable);
+        checkoutBtn.setEnabled(editable);
+    }
 
-            buttonPanel.add(plusBtn);
-            buttonPanel.add(minusBtn);
-            buttonPanel.add(removeBtn);
+    private void filterMenu() {
+        updateMenuItems(menuItemsPanel);
+    }
 
-            cartModel.addRow(new Object[]{
-                item.getName(),
-                quantity,
-                String.format("¥%.2f", price),
-                String.format("¥%.2f", total),
-                buttonPanel
-            });
+    // The cart keeps items from every stall; only the menu on the left follows the selected one
+    private void switchVendor(Vendor selected) {
+        if (selected == vendor) {
+            return;
+        }
+        vendor = selected;
+        visibleItems = null;
+        fillCategories();
+        filterMenu();
+    }
+
+    private void fillCategories() {
+        ActionListener[] actions = categoryBox.getActionListeners();
+        for (ActionListener action : actions) {
+            categoryBox.removeActionListener(action);
+        }
+        categoryBox.removeAllItems();
+        categoryBox.addItem("All");
+        for (String category : vendor.getMenu().getCategories()) {
+            categoryBox.addItem(category);
         }
-        grandTotalLabel.setText("Grand Total: " + String.format("¥%.2f", cart.calculateTotal()));
+        for (ActionListener action : actions) {
+            categoryBox.addActionListener(action);
+        }
+    }
+
+    private void updateGrandTotal() {
+        grandTotalLabel.setText("Grand Total: " + Money.format(cart.getTotalMinor()));
     }
 
     private void handlePayment() {
-        if (cart.getItems().isEmpty()) {
+        if (cart.isEmpty()) {
             GUIHelper.showMessage("Error", "Cart is empty!", JOptionPane.ERROR_MESSAGE);
             return;
         }
+        // Any change to the cart makes a new purchase; clicking again on an unchanged cart is the same one
+        String checkoutKey = "rev-" + cart.getRevision();
+        if (registry.isCheckoutKnown(cart, checkoutKey)) {
+            return;
+        }
 
         String[] options = {"Cash", "Digital"};
         int choice = JOptionPane.showOptionDialog(
@@ -514,38 +1064,52 @@ public class CanteenManagementSystem {
         );
 
         try {
-            Payment payment;
+            VendorRegistry.PaymentFactory payments;
+            String success;
             if (choice == 0) {
                 String cashInput = JOptionPane.showInputDialog("Enter cash amount:");
                 double cash = Double.parseDouble(cashInput);
-                payment = new CashPayment("PAY-" + System.currentTimeMillis(), cart.calculateTotal(), cash);
-                CashPayment cashPayment = (CashPayment) payment;
-                Order newOrder = new Order(customer, vendor, cart.getItems(), orderStatusLabel);
-                if (cashPayment.processPayment(newOrder)) {
-                    GUIHelper.showMessage("Payment Success", 
-                        "Payment processed!\nChange: ¥" + String.format("%.2f", cashPayment.calculateChange()));
-                    customer.placeOrder(newOrder); // Add order to customer history
-                    cart.clearCart();
-                    updateCartTable();
-                    promptForFeedback(newOrder); // Prompt for feedback after successful payment
-                } else {
-                    throw new PaymentException("Insufficient cash.");
+                long totalMinor = cart.getTotalMinor();
+                if (Money.toMinor(cash) < totalMinor) {
+                    GUIHelper.showMessage("Error", "Insufficient cash received.", JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
+                // Each stall is paid exactly its share; the change is worked out once for the whole cart
+                payments = (stall, amount) -> new CashPayment(IdGenerator.getDefault().nextId("PAY-"), amount, amount);
+                success = "Payment processed!\nChange: " + Money.format(Money.toMinor(cash) - totalMinor);
             } else if (choice == 1) {
                 String txnID = JOptionPane.showInputDialog("Enter transaction ID (TXN...):");
-                payment = new DigitalPayment("PAY-" + System.currentTimeMillis(), cart.calculateTotal(), txnID);
-                Order newOrder = new Order(customer, vendor, cart.getItems(), orderStatusLabel);
-                if (((Payable) payment).processPayment(newOrder)) {
-                    GUIHelper.showMessage("Success", "Payment processed!");
-                    customer.placeOrder(newOrder); // Add order to customer history
-                    cart.clearCart();
-                    updateCartTable();
-                    promptForFeedback(newOrder); // Prompt for feedback after successful payment
-                } else {
-                    throw new PaymentException("Invalid transaction ID.");
-                }
+                payments = (stall, amount) -> new DigitalPayment(IdGenerator.getDefault().nextId("PAY-"), amount, txnID);
+                success = "Payment processed!";
             } else return;
 
+            if (registry.isCheckoutKnown(cart, checkoutKey)) {
+                return;
+            }
+            setCartEditable(false);
+            registry.checkout(checkoutKey, cart, payments, paymentAuthorizer, SwingUtilities::invokeLater)
+                .whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                    setCartEditable(true);
+                    cartModel.cartChanged();
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        GUIHelper.showMessage("Error", cause.getMessage(), JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    if (!result.isComplete()) {
+                        StringBuilder message = new StringBuilder("Some stalls declined; their items are still in your cart:");
+                        for (Map.Entry<Vendor, Throwable> failure : result.getFailures().entrySet()) {
+                            message.append("\n").append(failure.getKey().getName()).append(": ").append(failure.getValue().getMessage());
+                        }
+                        GUIHelper.showMessage("Error", message.toString(), JOptionPane.ERROR_MESSAGE);
+                    }
+                    if (!result.getOrders().isEmpty()) {
+                        GUIHelper.showMessage("Payment Success", success);
+                    }
+                    for (Order newOrder : result.getOrders()) {
+                        promptForFeedback(newOrder); // Prompt for feedback after successful payment
+                    }
+                }));
         } catch (Exception e) {
             GUIHelper.showMessage("Error", e.getMessage(), JOptionPane.ERROR_MESSAGE);
         }
@@ -577,84 +1141,192 @@ public class CanteenManagementSystem {
             comments = "";
         }
 
-        Feedback feedback = new Feedback("FB" + System.currentTimeMillis(), customer, order, rating, comments);
-        customer.submitFeedback(feedback);
-        vendor.addFeedback(feedback);
-        feedback.saveToFile();
+        registry.getShard(order.getVendor()).submitFeedback(order, rating, comments).whenComplete((feedback, error) -> {
+            if (error != null) {
+                SwingUtilities.invokeLater(() -> queueNotification("Error saving feedback: " + error.getMessage()));
+            }
+        });
         GUIHelper.showMessage("Feedback Submitted", "Thank you for your feedback!");
     }
 
     private void viewOrderHistoryWithFeedback() {
-        StringBuilder sb = new StringBuilder();
-        for (Order order : customer.getOrderHistory()) {
+        OrderHistoryListModel historyModel = new OrderHistoryListModel(customer, 50);
+        historyModel.loadNextPage();
+
+        JList<Order> historyList = new JList<>(historyModel);
+        historyList.setCellRenderer(new OrderHistoryRenderer());
+        JScrollPane scrollPane = new JScrollPane(historyList);
+        // Fetch the next page once the user scrolls near the end of what has been loaded
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            if (historyList.getLastVisibleIndex() >= historyModel.getSize() - 5) {
+                historyModel.loadNextPage();
+            }
+        });
+
+        JFrame historyFrame = new JFrame("Order History");
+        if (historyModel.getSize() == 0) {
+            JLabel emptyLabel = new JLabel("No order history found.");
+            emptyLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+            historyFrame.add(emptyLabel);
+        } else {
+            historyFrame.add(scrollPane);
+        }
+        historyFrame.setSize(400, 300);
+        historyFrame.setVisible(true);
+    }
+
+    class OrderHistoryRenderer implements ListCellRenderer<Order> {
+        private final JTextArea textArea = new JTextArea();
+
+        OrderHistoryRenderer() {
+            textArea.setFont(new Font("Arial", Font.PLAIN, 14));
+            textArea.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Order> list, Order order, int index, boolean isSelected, boolean cellHasFocus) {
+            StringBuilder sb = new StringBuilder();
             sb.append("Order ID: ").append(order.getOrderID()).append("\n");
             sb.append("Status: ").append(order.getStatus()).append("\n");
             sb.append("Items:\n");
             for (Map.Entry<FoodItem, Integer> entry : order.getItems().entrySet()) {
                 sb.append(" - ").append(entry.getKey().getName()).append(" x ").append(entry.getValue()).append("\n");
             }
-
-            // Find feedback for this order
-            Feedback matchingFeedback = null;
-            for (Feedback feedback : customer.getFeedbackList()) {
-                if (feedback.getOrder().getOrderID().equals(order.getOrderID())) {
-                    matchingFeedback = feedback;
-                    break;
-                }
-            }
-
-            if (matchingFeedback != null) {
-                sb.append("Rating: ").append(matchingFeedback.getRating()).append("/5\n");
-                sb.append("Comments: ").append(matchingFeedback.getComments()).append("\n");
+            Feedback feedback = customer.getFeedbackForOrder(order.getOrderID());
+            if (feedback != null) {
+                sb.append("Rating: ").append(feedback.getRating()).append("/5\n");
+                sb.append("Comments: ").append(feedback.getComments());
             } else {
-                sb.append("No feedback for this order.\n");
+                sb.append("No feedback for this order.");
             }
+            textArea.setText(sb.toString());
+            textArea.setBackground(isSelected ? list.getSelectionBackground() : list.getBackground());
+            textArea.setForeground(isSelected ? list.getSelectionForeground() : list.getForeground());
+            return textArea;
+        }
+    }
 
-            sb.append("\n");
+    // One batch per frame from the OrderStatusBus, already on the EDT
+    private void ordersChanged(List<OrderStatusBus.StatusUpdate> updates) {
+        for (OrderStatusBus.StatusUpdate closed : orderBoard.apply(updates)) {
+            String orderID = closed.getOrder().getOrderID();
+            queueNotification(closed.getStatus().equals("Completed") ? "Order " + orderID + " is ready!"
+                : "Order " + orderID + " was cancelled.");
+        }
+        if (!notificationTimer.isRunning()) {
+            orderStatusLabel.setText(orderSummary());
         }
+    }
 
-        if (sb.toString().trim().isEmpty()) {
-            sb.append("No order history found.");
+    // A cart left alone at the terminal stops holding back stock that other customers could buy
+    private void expireIdleCart() {
+        long idle = System.currentTimeMillis() - cart.getLastChangedMillis();
+        if (cart.isEmpty() || cart.isCheckingOut() || idle < CART_IDLE_MILLIS) {
+            return;
         }
+        if (cartTable.isEditing()) {
+            cartTable.getCellEditor().cancelCellEditing();
+        }
+        cartModel.clear();
+        queueNotification("Cart cleared after " + TimeUnit.MILLISECONDS.toMinutes(idle) + " idle minutes.");
+    }
 
-        JTextArea textArea = new JTextArea(sb.toString());
-        textArea.setEditable(false);
-        textArea.setFont(new Font("Arial", Font.PLAIN, 14));
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        JFrame historyFrame = new JFrame("Order History");
-        historyFrame.add(scrollPane);
-        historyFrame.setSize(400, 300);
-        historyFrame.setVisible(true);
+    // Notifications take turns in the status line instead of stacking modal dialogs on the cashier
+    private void queueNotification(String message) {
+        notifications.add(message);
+        if (!notificationTimer.isRunning()) {
+            showNextNotification();
+            notificationTimer.start();
+        }
+    }
+
+    private void showNextNotification() {
+        String next = notifications.poll();
+        if (next == null) {
+            notificationTimer.stop();
+            orderStatusLabel.setText(orderSummary());
+        } else {
+            orderStatusLabel.setText(next + (notifications.isEmpty() ? "" : " (+" + notifications.size() + " more)"));
+        }
+    }
+
+    private String orderSummary() {
+        int open = orderBoard.getOpenCount();
+        return open == 0 ? "No open orders." : open + (open == 1 ? " order" : " orders") + " in the kitchen.";
+    }
+
+    private void showOrderBoard() {
+        if (orderBoardDialog == null) {
+            orderBoardDialog = new JDialog(frame, "Order Board", false);
+            JTable boardTable = new JTable(orderBoard);
+            boardTable.setFont(new Font("Arial", Font.PLAIN, 16));
+            boardTable.setRowHeight(24);
+            orderBoardDialog.add(new JScrollPane(boardTable));
+            orderBoardDialog.setSize(480, 360);
+            orderBoardDialog.setLocationRelativeTo(frame);
+        }
+        orderBoardDialog.setVisible(true);
     }
 
-    class ButtonRenderer extends DefaultTableCellRenderer {
+    class SwingOrderListener implements OrderListener {
+        @Override
+        public void feedbackSaveFailed(Feedback feedback, Throwable error) {
+            SwingUtilities.invokeLater(() -> queueNotification("Error saving feedback: " + error.getMessage()));
+        }
+    }
+
+    static JPanel createActionPanel(JButton plusBtn, JButton minusBtn, JButton removeBtn) {
+        JPanel panel = new JPanel(new FlowLayout());
+        panel.add(plusBtn);
+        panel.add(minusBtn);
+        panel.add(removeBtn);
+        return panel;
+    }
+
+    // One panel paints the action buttons for every row; it holds no per-row state
+    static class ButtonRenderer implements TableCellRenderer {
+        private final JPanel panel = createActionPanel(new JButton("+"), new JButton("-"), new JButton("X"));
+
         @Override
         public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
-            if (value instanceof JPanel) {
-                return (JPanel) value;
-            }
-            return super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            panel.setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+            return panel;
         }
     }
 
-    class ButtonEditor extends DefaultCellEditor {
-        private JPanel panel;
+    class ButtonEditor extends AbstractCellEditor implements TableCellEditor {
+        private final JPanel panel;
+        private FoodItem editingItem;
 
-        public ButtonEditor(JCheckBox checkBox) {
-            super(checkBox);
+        public ButtonEditor() {
+            JButton plusBtn = new JButton("+");
+            JButton minusBtn = new JButton("-");
+            JButton removeBtn = new JButton("X");
+            plusBtn.addActionListener(e -> apply(CanteenManagementSystem.this::addToCart));
+            minusBtn.addActionListener(e -> apply(cartModel::removeItem));
+            removeBtn.addActionListener(e -> apply(cartModel::removeAll));
+            panel = createActionPanel(plusBtn, minusBtn, removeBtn);
+        }
+
+        private void apply(Consumer<FoodItem> action) {
+            FoodItem item = editingItem;
+            // Finish editing first so the table is not holding an editor on a row that may disappear
+            fireEditingStopped();
+            if (item != null) {
+                action.accept(item);
+            }
         }
 
         @Override
         public Component getTableCellEditorComponent(JTable table, Object value, boolean isSelected, int row, int column) {
-            if (value instanceof JPanel) {
-                panel = (JPanel) value;
-            }
+            editingItem = cartModel.getItemAt(row);
+            panel.setBackground(table.getSelectionBackground());
             return panel;
         }
 
         @Override
         public Object getCellEditorValue() {
-            return panel;
+            return editingItem;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+import java.util.Map;
+
+public interface CanteenMetricsMXBean {
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getGauges();
+}
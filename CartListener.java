@@ -0,0 +1,5 @@
+public interface CartListener {
+    void quantityChanged(Cart cart, FoodItem item, int quantity);
+
+    void cartCleared(Cart cart);
+}
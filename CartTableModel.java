@@ -0,0 +1,98 @@
+import javax.swing.table.AbstractTableModel;
+
+public class CartTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    public static final int ACTIONS_COLUMN = 4;
+    private static final String[] COLUMNS = {"Item", "Quantity", "Price", "Total", "Actions"};
+
+    private final Cart cart;
+
+    public CartTableModel(Cart cart) {
+        this.cart = cart;
+    }
+
+    @Override
+    public int getRowCount() {
+        return cart.getLineCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == ACTIONS_COLUMN;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        FoodItem item = cart.getLineItem(row);
+        switch (column) {
+            case 0: return item.getName();
+            case 1: return cart.getLineQuantity(row);
+            case 2: return item.getFormattedPrice();
+            case 3: return Money.format(item.getPriceMinor() * cart.getLineQuantity(row));
+            default: return item;
+        }
+    }
+
+    public FoodItem getItemAt(int row) {
+        return cart.getLineItem(row);
+    }
+
+    public void addItem(FoodItem item) {
+        int row = cart.indexOf(item);
+        cart.addItem(item);
+        if (row < 0) {
+            int inserted = cart.getLineCount() - 1;
+            fireTableRowsInserted(inserted, inserted);
+        } else {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    public void removeItem(FoodItem item) {
+        int row = cart.indexOf(item);
+        if (row < 0) {
+            return;
+        }
+        cart.removeItem(item);
+        if (cart.indexOf(item) < 0) {
+            fireTableRowsDeleted(row, row);
+        } else {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    public void removeAll(FoodItem item) {
+        int row = cart.indexOf(item);
+        if (row < 0) {
+            return;
+        }
+        cart.removeAll(item);
+        fireTableRowsDeleted(row, row);
+    }
+
+    public void clear() {
+        int rows = cart.getLineCount();
+        cart.clearCart();
+        if (rows > 0) {
+            fireTableRowsDeleted(0, rows - 1);
+        }
+    }
+
+    public void cartChanged() {
+        fireTableDataChanged();
+    }
+
+    public Cart getCart() {
+        return cart;
+    }
+}
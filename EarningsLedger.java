@@ -0,0 +1,151 @@
+import java.time.LocalTime;
+import java.util.Arrays;
+
+public class EarningsLedger {
+    public static final int PERIODS = 24;
+    private static final int METHODS = PaymentMethod.values().length;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    public EarningsLedger() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public EarningsLedger(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = size - 1;
+    }
+
+    public void record(PaymentMethod method, long amountMinor) {
+        record(method, LocalTime.now().getHour(), amountMinor, 1);
+    }
+
+    public void record(PaymentMethod method, int period, long amountMinor, int payments) {
+        if (period < 0 || period >= PERIODS) {
+            throw new IllegalArgumentException("Period must be an hour between 0 and 23.");
+        }
+        int slot = period * METHODS + method.ordinal();
+        // Each thread sticks to one stripe, so terminals only meet on a stripe when their IDs collide
+        Stripe stripe = stripes[spread(Thread.currentThread().getId()) & stripeMask];
+        synchronized (stripe) {
+            stripe.totals[slot] += amountMinor;
+            stripe.counts[slot] += payments;
+        }
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (long amount : stripe.totals) {
+                    total += amount;
+                }
+            }
+        }
+        return total;
+    }
+
+    public Snapshot snapshot() {
+        return collect(false);
+    }
+
+    public Snapshot closePeriod() {
+        return collect(true);
+    }
+
+    private Snapshot collect(boolean reset) {
+        long[] totals = new long[PERIODS * METHODS];
+        long[] counts = new long[PERIODS * METHODS];
+        lockAndCollect(0, totals, counts, reset);
+        return new Snapshot(totals, counts);
+    }
+
+    // Holds every stripe monitor at once so the snapshot never sees half of a concurrent update
+    private void lockAndCollect(int index, long[] totals, long[] counts, boolean reset) {
+        if (index == stripes.length) {
+            for (Stripe stripe : stripes) {
+                for (int slot = 0; slot < totals.length; slot++) {
+                    totals[slot] += stripe.totals[slot];
+                    counts[slot] += stripe.counts[slot];
+                }
+                if (reset) {
+                    Arrays.fill(stripe.totals, 0);
+                    Arrays.fill(stripe.counts, 0);
+                }
+            }
+            return;
+        }
+        synchronized (stripes[index]) {
+            lockAndCollect(index + 1, totals, counts, reset);
+        }
+    }
+
+    private static int spread(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static class Stripe {
+        private final long[] totals = new long[PERIODS * METHODS];
+        private final long[] counts = new long[PERIODS * METHODS];
+    }
+
+    public static class Snapshot {
+        private final long[] totals;
+        private final long[] counts;
+
+        private Snapshot(long[] totals, long[] counts) {
+            this.totals = totals;
+            this.counts = counts;
+        }
+
+        public long getTotal() {
+            long total = 0;
+            for (long amount : totals) {
+                total += amount;
+            }
+            return total;
+        }
+
+        public long getTotal(PaymentMethod method) {
+            long total = 0;
+            for (int period = 0; period < PERIODS; period++) {
+                total += totals[period * METHODS + method.ordinal()];
+            }
+            return total;
+        }
+
+        public long getTotal(int period) {
+            long total = 0;
+            for (int method = 0; method < METHODS; method++) {
+                total += totals[period * METHODS + method];
+            }
+            return total;
+        }
+
+        public long getTotal(PaymentMethod method, int period) {
+            return totals[period * METHODS + method.ordinal()];
+        }
+
+        public long getPaymentCount() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long getPaymentCount(PaymentMethod method) {
+            long total = 0;
+            for (int period = 0; period < PERIODS; period++) {
+                total += counts[period * METHODS + method.ordinal()];
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends feedback records on one writer thread. The future from append completes once the record is as durable
+ * as the fsync policy makes it: after the force that covers it under EVERY_BATCH and INTERVAL, and as soon as it
+ * reaches the OS under NEVER.
+ */
+public class FeedbackJournal {
+    public enum FsyncPolicy { NEVER, EVERY_BATCH, INTERVAL }
+
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int DEFAULT_MAX_BATCH = 256;
+    private static FeedbackJournal defaultJournal;
+
+    private final FileChannel channel;
+    private final BlockingQueue<PendingRecord> queue;
+    private final int maxBatch;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final Thread writer;
+    private volatile boolean closed;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private long lastForce = System.currentTimeMillis();
+    // Written to the channel but not yet covered by a force
+    private final List<PendingRecord> unsynced = new ArrayList<>();
+
+    public FeedbackJournal(Path path, int capacity, int maxBatch, FsyncPolicy fsyncPolicy,
+                           long fsyncIntervalMillis, long offerTimeoutMillis) throws IOException {
+        if (capacity < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("Journal capacity and batch size must be positive.");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.writer = new Thread(this::writeLoop, "feedback-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static synchronized FeedbackJournal getDefault() throws IOException {
+        if (defaultJournal == null) {
+            FsyncPolicy policy = FsyncPolicy.valueOf(System.getProperty("canteen.feedback.fsync", "EVERY_BATCH"));
+            Path path = Paths.get(System.getProperty("canteen.feedback.file", "feedback.txt"));
+            defaultJournal = new FeedbackJournal(path, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH, policy,
+                    Long.getLong("canteen.feedback.fsyncIntervalMillis", 1000L), 200);
+            FeedbackJournal journal = defaultJournal;
+            Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "feedback-journal-shutdown"));
+            Metrics.getDefault().gauge("feedback.pendingWrites", journal::getPendingCount);
+        }
+        return defaultJournal;
+    }
+
+    public CompletableFuture<Void> append(String record) {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        if (closed) {
+            written.completeExceptionally(new IOException("Feedback journal is closed."));
+            return written;
+        }
+        try {
+            // A full queue holds the caller back briefly, then sheds the record instead of blocking the UI
+            if (!queue.offer(new PendingRecord(record.getBytes(StandardCharsets.UTF_8), written),
+                    offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                written.completeExceptionally(new RejectedExecutionException("Feedback journal is full."));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            written.completeExceptionally(e);
+        }
+        return written;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // An empty record wakes the writer without interrupting it mid-write, which would close the channel;
+            // if the queue is full the writer is busy anyway and sees the flag on its next poll
+            queue.offer(new PendingRecord(new byte[0], new CompletableFuture<>()), offerTimeoutMillis,
+                    TimeUnit.MILLISECONDS);
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!writer.isAlive()) {
+            // Records that slipped in behind the writer's last poll
+            PendingRecord record;
+            while ((record = queue.poll()) != null) {
+                record.written.completeExceptionally(new IOException("Feedback journal is closed."));
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>(maxBatch);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(pollMillis(), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatch - 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            commit(batch);
+            batch.clear();
+        }
+        force();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to report to once the journal is shutting down
+        }
+    }
+
+    private long pollMillis() {
+        return fsyncPolicy == FsyncPolicy.INTERVAL && !unsynced.isEmpty() ? Math.max(1, fsyncIntervalMillis) : 1000;
+    }
+
+    private void commit(List<PendingRecord> batch) {
+        // Records before this index have reached the channel; a failed write only fails the ones after it
+        int written = 0;
+        try {
+            if (!batch.isEmpty()) {
+                buffer.clear();
+                for (int i = 0; i < batch.size(); i++) {
+                    PendingRecord record = batch.get(i);
+                    if (buffer.remaining() < record.bytes.length) {
+                        flushBuffer();
+                        written = i;
+                        if (buffer.capacity() < record.bytes.length) {
+                            buffer = ByteBuffer.allocateDirect(record.bytes.length);
+                        }
+                    }
+                    buffer.put(record.bytes);
+                }
+                flushBuffer();
+                written = batch.size();
+            }
+        } catch (IOException e) {
+            for (PendingRecord record : batch.subList(written, batch.size())) {
+                record.written.completeExceptionally(e);
+            }
+        }
+        if (fsyncPolicy == FsyncPolicy.NEVER) {
+            for (PendingRecord record : batch.subList(0, written)) {
+                record.written.complete(null);
+            }
+            return;
+        }
+        unsynced.addAll(batch.subList(0, written));
+        long now = System.currentTimeMillis();
+        if (!unsynced.isEmpty() && (fsyncPolicy == FsyncPolicy.EVERY_BATCH
+                || now - lastForce >= fsyncIntervalMillis)) {
+            force();
+        }
+    }
+
+    private void force() {
+        try {
+            channel.force(false);
+            lastForce = System.currentTimeMillis();
+            for (PendingRecord record : unsynced) {
+                record.written.complete(null);
+            }
+        } catch (IOException e) {
+            for (PendingRecord record : unsynced) {
+                record.written.completeExceptionally(e);
+            }
+        }
+        unsynced.clear();
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static class PendingRecord {
+        private final byte[] bytes;
+        private final CompletableFuture<Void> written;
+
+        private PendingRecord(byte[] bytes, CompletableFuture<Void> written) {
+            this.bytes = bytes;
+            this.written = written;
+        }
+    }
+}
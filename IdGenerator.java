@@ -0,0 +1,56 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IdGenerator {
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final IdGenerator DEFAULT = new IdGenerator(Long.getLong("canteen.node", 0L));
+
+    private final long node;
+    // Packs the last issued (timestamp << SEQUENCE_BITS | sequence)
+    private final AtomicLong lastStamp = new AtomicLong();
+
+    public IdGenerator(long node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE + ".");
+        }
+        this.node = node;
+    }
+
+    public static IdGenerator getDefault() {
+        return DEFAULT;
+    }
+
+    public long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        while (true) {
+            long last = lastStamp.get();
+            // Within the same millisecond, or if the clock stepped back, keep counting from the
+            // last stamp; a full sequence simply carries into the next millisecond.
+            long next = now > last ? now : last + 1;
+            if (lastStamp.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public String nextId(String prefix) {
+        return prefix + nextId();
+    }
+
+    public long getNode() {
+        return node;
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    public static long nodeOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE;
+    }
+}
@@ -0,0 +1,139 @@
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of recent keyed operations so a retried or double-submitted request gets the first
+ * result back instead of running again. Requests that arrive while the first is still running share its
+ * future. Failed operations, and results the owner says changed nothing, are forgotten so a retry runs again.
+ *
+ * Every key lives for the same time, so insertion order is expiry order: one FIFO queue handles both expiry and
+ * the size bound without a scan. Keys pushed out by the size bound before they expire simply run again.
+ */
+public class IdempotencyCache<T> {
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final Predicate<? super T> worthKeeping;
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<T>> expiryOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public IdempotencyCache(int capacity, long ttlMillis) {
+        this(capacity, ttlMillis, result -> true);
+    }
+
+    public IdempotencyCache(int capacity, long ttlMillis, Predicate<? super T> worthKeeping) {
+        if (capacity < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("Idempotency cache capacity and TTL must be positive.");
+        }
+        this.capacity = capacity;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.worthKeeping = worthKeeping;
+    }
+
+    public CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> operation) {
+        long now = System.nanoTime();
+        expire(now);
+        Entry<T> fresh = new Entry<>(key, now + ttlNanos);
+        while (true) {
+            Entry<T> existing = entries.putIfAbsent(key, fresh);
+            if (existing == null) {
+                break;
+            }
+            if (!existing.isExpired(now)) {
+                hits.increment();
+                return existing.result;
+            }
+            if (entries.replace(key, existing, fresh)) {
+                break;
+            }
+        }
+        misses.increment();
+        expiryOrder.add(fresh);
+        if (queued.incrementAndGet() > capacity) {
+            evictOldest();
+        }
+
+        CompletableFuture<T> running;
+        try {
+            running = operation.get();
+        } catch (RuntimeException e) {
+            running = new CompletableFuture<>();
+            running.completeExceptionally(e);
+        }
+        running.whenComplete((value, error) -> {
+            if (error != null) {
+                entries.remove(key, fresh);
+                fresh.result.completeExceptionally(error);
+            } else {
+                if (!worthKeeping.test(value)) {
+                    entries.remove(key, fresh);
+                }
+                fresh.result.complete(value);
+            }
+        });
+        return fresh.result;
+    }
+
+    public boolean contains(String key) {
+        Entry<T> entry = entries.get(key);
+        return entry != null && !entry.isExpired(System.nanoTime());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void expire(long now) {
+        Entry<T> head;
+        while ((head = expiryOrder.peek()) != null && head.isExpired(now)) {
+            if (expiryOrder.remove(head)) {
+                queued.decrementAndGet();
+                entries.remove(head.key, head);
+            }
+        }
+    }
+
+    private void evictOldest() {
+        Entry<T> oldest = expiryOrder.poll();
+        if (oldest != null) {
+            queued.decrementAndGet();
+            entries.remove(oldest.key, oldest);
+        }
+    }
+
+    private static class Entry<T> {
+        private final String key;
+        private final long expiresAt;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Entry(String key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+}
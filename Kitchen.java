@@ -0,0 +1,281 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * A vendor's kitchen: named stations with a fixed number of parallel slots each. Every order line becomes
+ * one task on its item's station. Queued tasks are dispatched shortest-job-first with aging, so small
+ * tickets overtake large ones during a rush but nothing waits forever.
+ *
+ * Ready times are projected lazily: a change only marks its station stale, and the station's queue is replayed
+ * the next time someone asks for a ticket on it.
+ */
+public class Kitchen {
+    public static final int DEFAULT_STATION_CAPACITY = 1;
+    // Milliseconds of queue priority an order earns for every millisecond it waits
+    public static final double DEFAULT_AGING = 0.1;
+
+    public interface TicketListener {
+        void started(Ticket ticket);
+
+        void finished(Ticket ticket);
+    }
+
+    // Ties on priority fall back to arrival order
+    private static final Comparator<Task> DISPATCH_ORDER = Comparator
+            .comparingDouble((Task t) -> t.priority)
+            .thenComparingLong(t -> t.sequence);
+
+    private final KitchenScheduler scheduler;
+    private final double aging;
+    private final Map<String, Station> stations = new LinkedHashMap<>();
+    private final Set<Ticket> openTickets = new LinkedHashSet<>();
+    private long nextSequence;
+
+    public Kitchen() {
+        this(KitchenScheduler.getDefault(), DEFAULT_AGING);
+    }
+
+    public Kitchen(KitchenScheduler scheduler, double aging) {
+        if (aging < 0) {
+            throw new IllegalArgumentException("Aging cannot be negative.");
+        }
+        this.scheduler = scheduler;
+        this.aging = aging;
+    }
+
+    public void addStation(String name, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Station " + name + " needs at least one slot.");
+        }
+        List<Runnable> callbacks = new ArrayList<>();
+        synchronized (this) {
+            Station station = stations.get(name);
+            if (station == null) {
+                stations.put(name, new Station(name, capacity));
+            } else {
+                station.capacity = capacity;
+                station.projected = false;
+            }
+            dispatch(System.currentTimeMillis(), callbacks);
+        }
+        runAll(callbacks);
+    }
+
+    public Ticket submit(String label, Map<FoodItem, Integer> items, TicketListener listener) {
+        List<Runnable> callbacks = new ArrayList<>();
+        Ticket ticket;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            ticket = new Ticket(this, label, listener, now);
+            long work = 0;
+            for (Map.Entry<FoodItem, Integer> line : items.entrySet()) {
+                work += line.getKey().getPrepTimeMillis() * line.getValue();
+            }
+            // Priority is work - aging * waited; since both orders age at the same rate, work + aging * arrival ranks them the same
+            double priority = work + aging * now;
+            for (Map.Entry<FoodItem, Integer> line : items.entrySet()) {
+                FoodItem item = line.getKey();
+                Station station = stations.computeIfAbsent(item.getStation(), name -> new Station(name, DEFAULT_STATION_CAPACITY));
+                Task task = new Task(ticket, station, item.getPrepTimeMillis() * line.getValue(), priority, nextSequence++);
+                ticket.remainingTasks++;
+                ticket.tasks.add(task);
+                station.queue.add(task);
+                station.projected = false;
+            }
+            if (ticket.remainingTasks == 0) {
+                ticket.done = true;
+                callbacks.add(() -> listener.started(ticket));
+                callbacks.add(() -> listener.finished(ticket));
+            } else {
+                openTickets.add(ticket);
+                dispatch(now, callbacks);
+            }
+        }
+        runAll(callbacks);
+        return ticket;
+    }
+
+    // Queued work is dropped; anything already on a station finishes, but the order hears nothing more
+    public synchronized void cancel(Ticket ticket) {
+        if (ticket == null || ticket.done) {
+            return;
+        }
+        ticket.etaMillis = System.currentTimeMillis();
+        ticket.done = true;
+        openTickets.remove(ticket);
+        for (Task task : ticket.tasks) {
+            if (task.station.queue.remove(task)) {
+                task.station.projected = false;
+            }
+        }
+    }
+
+    public synchronized int getQueuedTaskCount() {
+        int queued = 0;
+        for (Station station : stations.values()) {
+            queued += station.queue.size();
+        }
+        return queued;
+    }
+
+    public synchronized int getBusySlots() {
+        int busy = 0;
+        for (Station station : stations.values()) {
+            busy += station.running.size();
+        }
+        return busy;
+    }
+
+    public synchronized int getOpenTicketCount() {
+        return openTickets.size();
+    }
+
+    private void complete(Task task) {
+        List<Runnable> callbacks = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            task.station.running.remove(task);
+            task.station.projected = false;
+            Ticket ticket = task.ticket;
+            if (!ticket.done && --ticket.remainingTasks == 0) {
+                ticket.etaMillis = now;
+                ticket.done = true;
+                openTickets.remove(ticket);
+                callbacks.add(() -> ticket.listener.finished(ticket));
+            }
+            dispatch(now, callbacks);
+        }
+        runAll(callbacks);
+    }
+
+    private void dispatch(long now, List<Runnable> callbacks) {
+        for (Station station : stations.values()) {
+            while (station.running.size() < station.capacity && !station.queue.isEmpty()) {
+                Task task = station.queue.poll();
+                task.endsAt = now + task.durationMillis;
+                station.running.add(task);
+                station.projected = false;
+                Ticket ticket = task.ticket;
+                if (!ticket.started) {
+                    ticket.started = true;
+                    callbacks.add(() -> ticket.listener.started(ticket));
+                }
+                scheduler.scheduleOnce(() -> complete(task), task.durationMillis);
+            }
+        }
+    }
+
+    private synchronized long projectEta(Ticket ticket) {
+        if (ticket.done) {
+            return ticket.etaMillis;
+        }
+        long now = System.currentTimeMillis();
+        long eta = ticket.submittedAt;
+        for (Task task : ticket.tasks) {
+            if (!task.station.projected) {
+                project(task.station, now);
+            }
+            eta = Math.max(eta, task.projectedFinish);
+        }
+        return eta;
+    }
+
+    // Replays one station's queue against its free slots to project when each of its tasks will be done
+    private static void project(Station station, long now) {
+        PriorityQueue<Long> slotFreeAt = new PriorityQueue<>();
+        for (Task running : station.running) {
+            running.projectedFinish = running.endsAt;
+            slotFreeAt.add(running.endsAt);
+        }
+        while (slotFreeAt.size() < station.capacity) {
+            slotFreeAt.add(now);
+        }
+        Task[] queued = station.queue.toArray(new Task[0]);
+        Arrays.sort(queued, DISPATCH_ORDER);
+        for (Task task : queued) {
+            task.projectedFinish = Math.max(now, slotFreeAt.poll()) + task.durationMillis;
+            slotFreeAt.add(task.projectedFinish);
+        }
+        station.projected = true;
+    }
+
+    private static void runAll(List<Runnable> callbacks) {
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    public static class Ticket {
+        private final Kitchen kitchen;
+        private final String label;
+        private final TicketListener listener;
+        private final long submittedAt;
+        private final List<Task> tasks = new ArrayList<>();
+        private int remainingTasks;
+        private volatile boolean started;
+        private volatile boolean done;
+        private volatile long etaMillis;
+
+        private Ticket(Kitchen kitchen, String label, TicketListener listener, long submittedAt) {
+            this.kitchen = kitchen;
+            this.label = label;
+            this.listener = listener;
+            this.submittedAt = submittedAt;
+            this.etaMillis = submittedAt;
+        }
+
+        public String getLabel() { return label; }
+        public long getSubmittedAt() { return submittedAt; }
+        public long getEtaMillis() { return done ? etaMillis : kitchen.projectEta(this); }
+        public boolean isStarted() { return started; }
+        public boolean isDone() { return done; }
+
+        public long getRemainingMillis() {
+            return Math.max(0, getEtaMillis() - System.currentTimeMillis());
+        }
+    }
+
+    private static class Task {
+        private final Ticket ticket;
+        private final Station station;
+        private final long durationMillis;
+        private final double priority;
+        private final long sequence;
+        private long endsAt;
+        private long projectedFinish;
+
+        private Task(Ticket ticket, Station station, long durationMillis, double priority, long sequence) {
+            this.ticket = ticket;
+            this.station = station;
+            this.durationMillis = durationMillis;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class Station {
+        private final String name;
+        private int capacity;
+        // False once anything on the station changes, until the next projection
+        private boolean projected;
+        private final List<Task> running = new ArrayList<>();
+        private final PriorityQueue<Task> queue = new PriorityQueue<>(DISPATCH_ORDER);
+
+        private Station(String name, int capacity) {
+            this.name = name;
+            this.capacity = capacity;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + running.size() + "/" + capacity + " busy, " + queue.size() + " queued)";
+        }
+    }
+}
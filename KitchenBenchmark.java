@@ -0,0 +1,73 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class KitchenBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        long arrivalMillis = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+        int slots = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        // Prep times are scaled down to milliseconds so a whole lunch rush replays in a few seconds
+        FoodItem[] items = {
+                new FoodItem("B1", "Tea", 1.0, "Beverages", "Bar", 2),
+                new FoodItem("B2", "Coffee", 1.5, "Beverages", "Bar", 4),
+                new FoodItem("S1", "Samosa", 2.0, "Snacks", "Fryer", 6),
+                new FoodItem("M1", "Thali", 8.0, "Meals", "Stove", 25),
+                new FoodItem("M2", "Biryani", 9.0, "Meals", "Stove", 35),
+        };
+
+        System.out.printf("%-22s %10s %10s %10s %10s%n", "Policy", "mean ms", "p50 ms", "p95 ms", "max ms");
+        run("FIFO", 1e6, orders, arrivalMillis, slots, items);
+        run("SJF + aging " + Kitchen.DEFAULT_AGING, Kitchen.DEFAULT_AGING, orders, arrivalMillis, slots, items);
+        run("SJF (no aging)", 0, orders, arrivalMillis, slots, items);
+    }
+
+    private static void run(String policy, double aging, int orders, long arrivalMillis, int slots, FoodItem[] items)
+            throws InterruptedException {
+        KitchenScheduler scheduler = new KitchenScheduler(1);
+        Kitchen kitchen = new Kitchen(scheduler, aging);
+        for (FoodItem item : items) {
+            kitchen.addStation(item.getStation(), slots);
+        }
+        Random random = new Random(42);
+        long[] ticketMillis = new long[orders];
+        CountDownLatch done = new CountDownLatch(orders);
+        long gapNanos = TimeUnit.MILLISECONDS.toNanos(arrivalMillis) / orders;
+        long next = System.nanoTime();
+        for (int i = 0; i < orders; i++) {
+            Map<FoodItem, Integer> lines = new LinkedHashMap<>();
+            int lineCount = 1 + random.nextInt(3);
+            for (int l = 0; l < lineCount; l++) {
+                lines.merge(items[random.nextInt(items.length)], 1, Integer::sum);
+            }
+            int slot = i;
+            kitchen.submit("T" + i, lines, new Kitchen.TicketListener() {
+                @Override
+                public void started(Kitchen.Ticket ticket) {
+                }
+
+                @Override
+                public void finished(Kitchen.Ticket ticket) {
+                    ticketMillis[slot] = System.currentTimeMillis() - ticket.getSubmittedAt();
+                    done.countDown();
+                }
+            });
+            next += gapNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+        done.await();
+        scheduler.shutdown();
+
+        Arrays.sort(ticketMillis);
+        double mean = Arrays.stream(ticketMillis).average().orElse(0);
+        System.out.printf("%-22s %10.1f %10d %10d %10d%n", policy, mean, ticketMillis[orders / 2],
+                ticketMillis[(int) (orders * 0.95)], ticketMillis[orders - 1]);
+    }
+}
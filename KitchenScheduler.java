@@ -0,0 +1,85 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class KitchenScheduler {
+    private static final KitchenScheduler DEFAULT = new KitchenScheduler(1);
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicInteger openTasks = new AtomicInteger();
+
+    public KitchenScheduler(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Scheduler needs at least one thread.");
+        }
+        AtomicInteger threadCounter = new AtomicInteger(1);
+        ThreadFactory defaults = Executors.defaultThreadFactory();
+        this.executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = defaults.newThread(r);
+            thread.setName("kitchen-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Cancelled orders must not linger in the work queue until their next tick
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    public static KitchenScheduler getDefault() {
+        return DEFAULT;
+    }
+
+    public ScheduledFuture<?> scheduleTicks(Runnable tick, long periodMillis) {
+        openTasks.incrementAndGet();
+        return executor.scheduleAtFixedRate(tick, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Future<?> scheduleOnce(Runnable task, long delayMillis) {
+        openTasks.incrementAndGet();
+        OneShot once = new OneShot(task);
+        once.scheduled = executor.schedule(once, delayMillis, TimeUnit.MILLISECONDS);
+        return once;
+    }
+
+    public void cancel(Future<?> task) {
+        if (task instanceof OneShot) {
+            task.cancel(false);
+        } else if (task != null && task.cancel(false)) {
+            openTasks.decrementAndGet();
+        }
+    }
+
+    public int getOpenTasks() {
+        return openTasks.get();
+    }
+
+    public int getThreadCount() {
+        return executor.getCorePoolSize();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // done() runs exactly once whether the task ran, failed or was cancelled, so the count cannot drift
+    private class OneShot extends FutureTask<Void> {
+        private volatile ScheduledFuture<?> scheduled;
+
+        private OneShot(Runnable task) {
+            super(task, null);
+        }
+
+        @Override
+        protected void done() {
+            openTasks.decrementAndGet();
+            ScheduledFuture<?> queued = scheduled;
+            if (isCancelled() && queued != null) {
+                queued.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class KitchenSchedulerBenchmark {
+    private static final long TICK_MILLIS = 1000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int openOrders = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        long runMillis = args.length > 2 ? Long.parseLong(args[2]) : 5_000;
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threadBean.getThreadCount();
+
+        KitchenScheduler scheduler = new KitchenScheduler(threads);
+        int maxSamples = (int) (openOrders * (runMillis / TICK_MILLIS + 2));
+        AtomicLongArray lagNanos = new AtomicLongArray(maxSamples);
+        AtomicInteger samples = new AtomicInteger();
+        List<ScheduledFuture<?>> ticks = new ArrayList<>(openOrders);
+
+        for (int i = 0; i < openOrders; i++) {
+            long firstTick = System.nanoTime();
+            AtomicInteger tickCount = new AtomicInteger();
+            ticks.add(scheduler.scheduleTicks(() -> {
+                long expected = firstTick + tickCount.getAndIncrement() * TICK_MILLIS * 1_000_000L;
+                int slot = samples.getAndIncrement();
+                if (slot < maxSamples) {
+                    lagNanos.set(slot, Math.max(0, System.nanoTime() - expected));
+                }
+            }, TICK_MILLIS));
+        }
+
+        Thread.sleep(runMillis);
+        int threadsDuring = threadBean.getThreadCount();
+        for (ScheduledFuture<?> tick : ticks) {
+            scheduler.cancel(tick);
+        }
+        int openAfterCancel = scheduler.getOpenTasks();
+        scheduler.shutdown();
+
+        int count = Math.min(samples.get(), maxSamples);
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = lagNanos.get(i);
+        }
+        Arrays.sort(sorted);
+
+        System.out.println("Open orders:            " + openOrders);
+        System.out.println("Scheduler threads:      " + scheduler.getThreadCount());
+        System.out.println("JVM threads before:     " + threadsBefore);
+        System.out.println("JVM threads during run: " + threadsDuring);
+        System.out.println("Ticks observed:         " + count);
+        System.out.println("Tick lag p50 (ms):      " + percentileMillis(sorted, 0.50));
+        System.out.println("Tick lag p99 (ms):      " + percentileMillis(sorted, 0.99));
+        System.out.println("Tick lag max (ms):      " + percentileMillis(sorted, 1.0));
+        System.out.println("Open tasks after cancel: " + openAfterCancel);
+    }
+
+    private static String percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return "n/a";
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return String.format("%.3f", sorted[Math.max(0, index)] / 1_000_000.0);
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size log-linear histogram of nanosecond latencies. Every power of two is split into 64 linear
+ * sub-buckets, so any recorded value is reported within about 1.6% across the whole range of a long.
+ * Recording is two atomic increments and never allocates.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int HALF_SUB_BUCKETS = 1 << (SUB_BUCKET_BITS - 1);
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int index = 0; index < BUCKETS; index++) {
+            seen += counts.get(index);
+            if (seen >= rank) {
+                return Math.min(highestValueAt(index), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : totalNanos.get() / (double) count / 1_000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return toMicros(getValueAtPercentile(50));
+    }
+
+    @Override
+    public double getP99Micros() {
+        return toMicros(getValueAtPercentile(99));
+    }
+
+    @Override
+    public double getP999Micros() {
+        return toMicros(getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return toMicros(maxNanos.get());
+    }
+
+    @Override
+    public void reset() {
+        for (int index = 0; index < BUCKETS; index++) {
+            counts.set(index, 0);
+        }
+        totalCount.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s count=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus", name, getCount(),
+                getMeanMicros(), getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+
+    // Values below 128 get exact buckets; above that, each doubling gets 64 buckets of equal width
+    static int indexOf(long value) {
+        int magnitude = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return magnitude * HALF_SUB_BUCKETS + (int) (value >>> magnitude);
+    }
+
+    static long highestValueAt(int index) {
+        int magnitude = Math.max(0, index / HALF_SUB_BUCKETS - 1);
+        long subBucket = index - (long) magnitude * HALF_SUB_BUCKETS;
+        return ((subBucket + 1) << magnitude) - 1;
+    }
+
+    private static double toMicros(long nanos) {
+        return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
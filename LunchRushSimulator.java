@@ -0,0 +1,275 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays a lunch rush without the Swing terminal: every customer is its own (virtual where available)
+ * thread that browses the menus, fills a cart, checks out with cash or a card, waits for the kitchen and
+ * sometimes leaves feedback. Arrivals follow the chosen curve over the run.
+ *
+ * Usage: LunchRushSimulator [customers] [seconds] [FLAT|RAMP|PEAK] [cash share 0..1] [stock per item, 0 = unlimited]
+ */
+public class LunchRushSimulator {
+    public enum ArrivalCurve {
+        FLAT, RAMP, PEAK;
+
+        // Inverse CDF of the arrival density over [0, 1), so evenly spaced quantiles give the curve's shape
+        double offset(double quantile) {
+            switch (this) {
+                case RAMP:
+                    return Math.sqrt(quantile);
+                case PEAK:
+                    return quantile < 0.5 ? Math.sqrt(quantile / 2) : 1 - Math.sqrt((1 - quantile) / 2);
+                default:
+                    return quantile;
+            }
+        }
+    }
+
+    private static final long READY_TIMEOUT_MILLIS = 60_000;
+
+    private final VendorRegistry registry;
+    private final PaymentAuthorizer authorizer;
+    private final double cashShare;
+    private final LatencyHistogram checkoutLatency = new LatencyHistogram("rush.checkout");
+    private final LatencyHistogram readyLatency = new LatencyHistogram("rush.orderReady");
+    private final LatencyHistogram visitLatency = new LatencyHistogram("rush.visit");
+    private final LongAdder ordersPlaced = new LongAdder();
+    private final LongAdder checkoutFailures = new LongAdder();
+    private final LongAdder cashFallbacks = new LongAdder();
+    private final LongAdder ordersNotReady = new LongAdder();
+    private final LongAdder feedbackLeft = new LongAdder();
+    private final LongAdder soldOut = new LongAdder();
+    private final AtomicInteger activeCustomers = new AtomicInteger();
+    private final AtomicInteger peakCustomers = new AtomicInteger();
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+
+    public LunchRushSimulator(VendorRegistry registry, PaymentAuthorizer authorizer, double cashShare) {
+        this.registry = registry;
+        this.authorizer = authorizer;
+        this.cashShare = cashShare;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 30;
+        ArrivalCurve curve = args.length > 2 ? ArrivalCurve.valueOf(args[2]) : ArrivalCurve.PEAK;
+        double cashShare = args.length > 3 ? Double.parseDouble(args[3]) : 0.4;
+        int stockPerItem = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        if (System.getProperty("canteen.feedback.file") == null) {
+            System.setProperty("canteen.feedback.file",
+                    Files.createTempFile("canteen-rush-feedback", ".txt").toString());
+        }
+
+        StubPaymentGateway gateway = new StubPaymentGateway(20, 80, 0.01);
+        PaymentAuthorizer authorizer = new PaymentAuthorizer(gateway, 1000, 64, 3, 20, 20, 2000);
+        VendorRegistry registry = newFoodCourt();
+        if (stockPerItem > 0) {
+            for (Vendor vendor : registry.getVendors().values()) {
+                for (FoodItem item : vendor.getMenu().getItems()) {
+                    item.getStock().setOnHand(stockPerItem);
+                }
+            }
+        }
+        LunchRushSimulator simulator = new LunchRushSimulator(registry, authorizer, cashShare);
+        long elapsedNanos = simulator.run(customers, TimeUnit.SECONDS.toMillis(seconds), curve);
+        simulator.printReport(customers, curve, elapsedNanos);
+
+        registry.shutdown();
+        authorizer.shutdown();
+        gateway.shutdown();
+    }
+
+    // Prep times are in milliseconds, not minutes, so a whole rush fits in one run
+    static VendorRegistry newFoodCourt() {
+        Vendor cafe = new Vendor("V001", "Abhyasi Cafe");
+        cafe.getMenu().addItem(new FoodItem("F001", "Veg Momo", 12.5, "Snacks", "Steamer", 40));
+        cafe.getMenu().addItem(new FoodItem("F002", "Burger", 15.0, "Snacks", "Grill", 50));
+        cafe.getMenu().addItem(new FoodItem("F003", "Cold Coffee", 10.0, "Beverages", "Bar", 15));
+        cafe.getKitchen().addStation("Steamer", 4);
+        cafe.getKitchen().addStation("Grill", 3);
+        cafe.getKitchen().addStation("Bar", 2);
+
+        Vendor chaiStall = new Vendor("V002", "Chai Point");
+        chaiStall.getMenu().addItem(new FoodItem("F101", "Masala Chai", 5.0, "Beverages", "Stove", 15));
+        chaiStall.getMenu().addItem(new FoodItem("F102", "Samosa", 6.0, "Snacks", "Fryer", 25));
+        chaiStall.getKitchen().addStation("Stove", 2);
+        chaiStall.getKitchen().addStation("Fryer", 2);
+
+        VendorRegistry registry = new VendorRegistry();
+        registry.register(cafe);
+        registry.register(chaiStall);
+        return registry;
+    }
+
+    public long run(int customers, long durationMillis, ArrivalCurve curve) throws InterruptedException {
+        ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rush-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        clock.scheduleAtFixedRate(() -> peakHeapBytes.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 100, TimeUnit.MILLISECONDS);
+
+        ExecutorService customerThreads = VirtualThreads.newPerTaskExecutor("customer");
+        CountDownLatch departed = new CountDownLatch(customers);
+        long start = System.nanoTime();
+        // A customer only gets a thread when they arrive, so live threads track the customers actually shopping
+        for (int i = 0; i < customers; i++) {
+            long arrivalNanos = start + (long) (curve.offset((i + 0.5) / customers) * TimeUnit.MILLISECONDS.toNanos(durationMillis));
+            Customer customer = new Customer("C" + i, "Customer " + i);
+            clock.schedule(() -> customerThreads.execute(() -> {
+                try {
+                    visit(customer, arrivalNanos);
+                } finally {
+                    departed.countDown();
+                }
+            }), arrivalNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        departed.await(durationMillis + READY_TIMEOUT_MILLIS * 2, TimeUnit.MILLISECONDS);
+        long elapsed = System.nanoTime() - start;
+        customerThreads.shutdown();
+        clock.shutdownNow();
+        return elapsed;
+    }
+
+    private void visit(Customer customer, long arrivalNanos) {
+        peakCustomers.accumulateAndGet(activeCustomers.incrementAndGet(), Math::max);
+        try {
+            shop(customer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            activeCustomers.decrementAndGet();
+            visitLatency.recordSince(arrivalNanos);
+        }
+    }
+
+    private void shop(Customer customer) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Cart cart = new Cart("Cart-" + customer.getCustomerID(), customer);
+        List<VendorShard> shards = registry.getShards();
+        for (int line = 1 + random.nextInt(3); line > 0; line--) {
+            // Browsing reads whichever menu version is current; no lock is taken
+            List<FoodItem> items = shards.get(random.nextInt(shards.size())).getVendor().getMenu().getSnapshot().getItems();
+            FoodItem item = items.get(random.nextInt(items.size()));
+            try {
+                for (int quantity = 1 + random.nextInt(2); quantity > 0; quantity--) {
+                    cart.addItem(item);
+                }
+            } catch (SoldOutException e) {
+                soldOut.increment();
+            }
+            TimeUnit.MILLISECONDS.sleep(random.nextLong(20, 200));
+        }
+
+        if (cart.isEmpty()) {
+            return;
+        }
+        boolean payCash = random.nextDouble() < cashShare;
+        List<Order> orders = new ArrayList<>();
+        if (!checkout(cart, payCash, orders) && !payCash) {
+            // A declined card is retried once in cash for whatever is still in the cart
+            cashFallbacks.increment();
+            checkout(cart, true, orders);
+        }
+        // Whatever could not be paid for goes back on the shelf
+        cart.clearCart();
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        for (Order order : orders) {
+            long placed = System.nanoTime();
+            try {
+                whenClosed(order).get(READY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                readyLatency.recordSince(placed);
+            } catch (TimeoutException | ExecutionException e) {
+                ordersNotReady.increment();
+                continue;
+            }
+            if (order.getStatus().equals("Completed") && random.nextInt(4) == 0) {
+                registry.getShard(order.getVendor()).submitFeedback(order, 1 + random.nextInt(5), "Lunch rush visit");
+                feedbackLeft.increment();
+            }
+        }
+    }
+
+    private boolean checkout(Cart cart, boolean cash, List<Order> orders) {
+        long start = System.nanoTime();
+        try {
+            // The customer thread owns its cart, so cart updates may run on whichever thread completes the split
+            VendorRegistry.SplitCheckout result = registry.checkout(cart, (vendor, amount) -> cash
+                    ? new CashPayment(IdGenerator.getDefault().nextId("PAY-"), amount, Math.ceil(amount))
+                    : new DigitalPayment(IdGenerator.getDefault().nextId("PAY-"), amount,
+                            "TXN" + IdGenerator.getDefault().nextId()), authorizer, Runnable::run).join();
+            orders.addAll(result.getOrders());
+            ordersPlaced.add(result.getOrders().size());
+            checkoutFailures.add(result.getFailures().size());
+            return result.isComplete();
+        } catch (CompletionException e) {
+            checkoutFailures.increment();
+            return false;
+        } finally {
+            checkoutLatency.recordSince(start);
+        }
+    }
+
+    private static CompletableFuture<Order> whenClosed(Order order) {
+        CompletableFuture<Order> closed = new CompletableFuture<>();
+        OrderListener listener = new OrderListener() {
+            @Override
+            public void orderStatusChanged(Order changed, String previousStatus) {
+                if (!changed.isOpen()) {
+                    closed.complete(changed);
+                }
+            }
+        };
+        order.addListener(listener);
+        // The kitchen may already have finished before the listener was attached
+        if (!order.isOpen()) {
+            closed.complete(order);
+        }
+        return closed.whenComplete((o, e) -> order.removeListener(listener));
+    }
+
+    public void printReport(int customers, ArrivalCurve curve, long elapsedNanos) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        double seconds = elapsedNanos / 1e9;
+        System.out.println("Customers:                  " + customers + " (" + curve + " arrivals)");
+        System.out.println("Customer threads:           " + (VirtualThreads.isAvailable() ? "virtual" : "platform (no virtual threads on this JVM)"));
+        System.out.printf("Elapsed (s):                %.1f%n", seconds);
+        System.out.println("Orders placed:              " + ordersPlaced.sum());
+        System.out.printf("Orders/sec:                 %.1f%n", ordersPlaced.sum() / seconds);
+        System.out.println("Checkout failures:          " + checkoutFailures.sum() + " (" + cashFallbacks.sum() + " retried in cash)");
+        System.out.println("Orders not ready in time:   " + ordersNotReady.sum());
+        System.out.println("Feedback left:              " + feedbackLeft.sum());
+        System.out.println("Sold-out items turned away: " + soldOut.sum());
+        System.out.println("Peak customers in store:    " + peakCustomers.get());
+        System.out.println("Peak live JVM threads:      " + threads.getPeakThreadCount());
+        System.out.printf("Peak heap used (MB):        %.1f%n", peakHeapBytes.get() / (1024.0 * 1024.0));
+        System.out.println(checkoutLatency);
+        System.out.println(readyLatency);
+        System.out.println(visitLatency);
+        System.out.print(Metrics.getDefault().report());
+    }
+}
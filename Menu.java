@@ -1,31 +1,263 @@
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Menu {
-    private List<FoodItem> items;
+    private static final int MAX_GRAM = 3;
+    // Ordinals are shared by every menu so carts can hold items from several vendors
+    private static final AtomicInteger nextOrdinal = new AtomicInteger();
+    // Versions are shared too, so one number says which prices a multi-vendor cart was built against
+    private static final AtomicLong latestVersion = new AtomicLong();
 
-    public Menu() {
-        this.items = new ArrayList<>();
-    }
+    // Writers rebuild and publish a whole snapshot; readers take one reference and never lock
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(
+            new Snapshot(0, new Index(Collections.emptyList()), Collections.emptyMap()));
 
     public void addItem(FoodItem item) {
-        items.add(item);
+        addItems(Collections.singletonList(item));
+    }
+
+    public synchronized void addItems(Collection<FoodItem> added) {
+        List<FoodItem> items = new ArrayList<>(current.get().getItems());
+        for (FoodItem item : added) {
+            if (item.getOrdinal() < 0) {
+                item.assignOrdinal(nextOrdinal.getAndIncrement());
+            }
+            items.add(item);
+        }
+        publish(items);
+    }
+
+    // Any version of the dish takes it off the menu
+    public synchronized void removeItem(FoodItem item) {
+        List<FoodItem> items = new ArrayList<>(current.get().getItems());
+        if (items.removeIf(listed -> listed.getBaseItem() == item.getBaseItem())) {
+            publish(items);
+        }
+    }
+
+    // Carts already holding the old item keep the price they were built with. Names and categories are unchanged,
+    // so the new snapshot shares the old one's search index and only swaps the item's current version.
+    public synchronized FoodItem updatePrice(String itemID, double price) {
+        Snapshot snapshot = current.get();
+        FoodItem old = snapshot.findItemByID(itemID);
+        if (old == null) {
+            throw new IllegalArgumentException("No item " + itemID + " on this menu.");
+        }
+        FoodItem repriced = new FoodItem(old.getItemID(), old.getName(), price, old.getCategory(), old.getStation(),
+                old.getPrepTimeMillis());
+        repriced.assignOrdinal(nextOrdinal.getAndIncrement());
+        repriced.replaces(old);
+        Map<FoodItem, FoodItem> repricedItems = new HashMap<>(snapshot.repriced);
+        repricedItems.put(old.getBaseItem(), repriced);
+        current.set(new Snapshot(latestVersion.incrementAndGet(), snapshot.index, repricedItems));
+        return repriced;
     }
 
-    public void removeItem(FoodItem item) {
-        items.remove(item);
+    public Snapshot getSnapshot() {
+        return current.get();
+    }
+
+    public long getVersion() {
+        return current.get().version;
     }
 
     public List<FoodItem> getItems() {
-        return items;
+        return current.get().getItems();
+    }
+
+    public static int getOrdinalCount() {
+        return nextOrdinal.get();
+    }
+
+    public static long getLatestVersion() {
+        return latestVersion.get();
+    }
+
+    public Set<String> getCategories() {
+        return current.get().getCategories();
     }
 
     public FoodItem findItemByName(String name) {
+        return current.get().findItemByName(name);
+    }
+
+    public FoodItem findItemByID(String itemID) {
+        return current.get().findItemByID(itemID);
+    }
+
+    public List<FoodItem> search(String query) {
+        return current.get().search(query, null);
+    }
+
+    public List<FoodItem> search(String query, String category) {
+        return current.get().search(query, category);
+    }
+
+    public List<FoodItem> refine(List<FoodItem> previousMatches, String query, String category) {
+        return current.get().refine(previousMatches, query, category);
+    }
+
+    static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void publish(List<FoodItem> items) {
+        Map<FoodItem, FoodItem> repriced = new HashMap<>();
         for (FoodItem item : items) {
-            if (item.getName().equalsIgnoreCase(name)) {
-                return item;
+            if (item.getBaseItem() != item) {
+                repriced.put(item.getBaseItem(), item);
+            }
+        }
+        current.set(new Snapshot(latestVersion.incrementAndGet(), new Index(items), repriced));
+    }
+
+    private static Set<String> grams(String name) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int length = 1; length <= MAX_GRAM; length++) {
+            for (int i = 0; i + length <= name.length(); i++) {
+                grams.add(name.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    // Search structures over each item's first version; only a change of name or category needs a new one
+    private static class Index {
+        private final List<FoodItem> items;
+        private final Map<String, FoodItem> itemsByName = new HashMap<>();
+        private final Map<String, FoodItem> itemsByID = new HashMap<>();
+        private final Map<String, Set<FoodItem>> itemsByGram = new HashMap<>();
+        private final Map<String, Set<FoodItem>> itemsByCategory = new HashMap<>();
+        private final Map<FoodItem, String> normalizedNames = new HashMap<>();
+        private final Set<String> categories;
+
+        private Index(List<FoodItem> items) {
+            List<FoodItem> baseItems = new ArrayList<>(items.size());
+            for (FoodItem item : items) {
+                baseItems.add(item.getBaseItem());
+            }
+            this.items = Collections.unmodifiableList(baseItems);
+            for (FoodItem item : baseItems) {
+                String name = normalize(item.getName());
+                normalizedNames.put(item, name);
+                itemsByName.putIfAbsent(name, item);
+                itemsByID.put(item.getItemID(), item);
+                for (String gram : grams(name)) {
+                    itemsByGram.computeIfAbsent(gram, k -> new LinkedHashSet<>()).add(item);
+                }
+                itemsByCategory.computeIfAbsent(item.getCategory(), k -> new LinkedHashSet<>()).add(item);
+            }
+            this.categories = Collections.unmodifiableSet(new LinkedHashSet<>(itemsByCategory.keySet()));
+        }
+    }
+
+    /** One immutable version of a menu: a shared search index plus the current version of every repriced item. */
+    public static class Snapshot {
+        private final long version;
+        private final Index index;
+        private final Map<FoodItem, FoodItem> repriced;
+        private volatile List<FoodItem> items;
+
+        private Snapshot(long version, Index index, Map<FoodItem, FoodItem> repriced) {
+            this.version = version;
+            this.index = index;
+            this.repriced = repriced;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<FoodItem> getItems() {
+            List<FoodItem> current = items;
+            if (current == null) {
+                current = repriced.isEmpty() ? index.items : Collections.unmodifiableList(currentVersions(index.items));
+                items = current;
+            }
+            return current;
+        }
+
+        public Set<String> getCategories() {
+            return index.categories;
+        }
+
+        public boolean contains(FoodItem item) {
+            return index.normalizedNames.containsKey(item.getBaseItem()) && currentVersion(item.getBaseItem()) == item;
+        }
+
+        public FoodItem findItemByName(String name) {
+            return name == null ? null : currentVersion(index.itemsByName.get(normalize(name)));
+        }
+
+        public FoodItem findItemByID(String itemID) {
+            return currentVersion(index.itemsByID.get(itemID));
+        }
+
+        public List<FoodItem> search(String query, String category) {
+            String needle = query == null ? "" : normalize(query);
+            Set<FoodItem> inCategory = category == null ? null
+                    : index.itemsByCategory.getOrDefault(category, Collections.emptySet());
+            if (needle.isEmpty()) {
+                return currentVersions(inCategory == null ? index.items : inCategory);
+            }
+            Set<FoodItem> candidates = null;
+            if (needle.length() <= MAX_GRAM) {
+                candidates = index.itemsByGram.getOrDefault(needle, Collections.emptySet());
+            } else {
+                // Walk the rarest trigram of the query and confirm the full match on its postings
+                for (int i = 0; i + MAX_GRAM <= needle.length(); i++) {
+                    Set<FoodItem> postings = index.itemsByGram.getOrDefault(needle.substring(i, i + MAX_GRAM),
+                            Collections.emptySet());
+                    if (candidates == null || postings.size() < candidates.size()) {
+                        candidates = postings;
+                    }
+                }
+            }
+            List<FoodItem> matches = new ArrayList<>();
+            for (FoodItem item : candidates) {
+                if ((inCategory == null || inCategory.contains(item))
+                        && (needle.length() <= MAX_GRAM || index.normalizedNames.get(item).contains(needle))) {
+                    matches.add(currentVersion(item));
+                }
+            }
+            return matches;
+        }
+
+        public List<FoodItem> refine(List<FoodItem> previousMatches, String query, String category) {
+            String needle = query == null ? "" : normalize(query);
+            List<FoodItem> matches = new ArrayList<>();
+            for (FoodItem item : previousMatches) {
+                String name = index.normalizedNames.get(item.getBaseItem());
+                if ((category == null || category.equals(item.getCategory())) && name != null && name.contains(needle)) {
+                    matches.add(currentVersion(item.getBaseItem()));
+                }
+            }
+            return matches;
+        }
+
+        private FoodItem currentVersion(FoodItem baseItem) {
+            if (baseItem == null || repriced.isEmpty()) {
+                return baseItem;
+            }
+            return repriced.getOrDefault(baseItem, baseItem);
+        }
+
+        private List<FoodItem> currentVersions(Collection<FoodItem> baseItems) {
+            List<FoodItem> current = new ArrayList<>(baseItems.size());
+            for (FoodItem item : baseItems) {
+                current.add(currentVersion(item));
             }
+            return current;
         }
-        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Named latency histograms, counters and gauges, exported over JMX under the "canteen" domain and,
+ * when enabled, appended to a local file at a fixed interval. Callers look a metric up once and keep
+ * the reference; recording through it never allocates.
+ */
+public class Metrics implements CanteenMetricsMXBean {
+    public static final String CHECKOUT = "checkout";
+    public static final String SPLIT_CHECKOUT = "checkout.split";
+    public static final String PAYMENT_PROCESS = "payment.process";
+    public static final String PAYMENT_AUTHORIZE = "payment.authorize";
+    public static final String FEEDBACK_SAVE = "feedback.save";
+    public static final String ORDER_LIFECYCLE = "order.lifecycle";
+    public static final String HTTP_REQUEST = "http.request";
+
+    private static Metrics defaultMetrics;
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final MBeanServer mbeanServer;
+    private ScheduledExecutorService dumper;
+
+    public Metrics(MBeanServer mbeanServer) {
+        this.mbeanServer = mbeanServer;
+        register("canteen:type=Metrics", this);
+    }
+
+    public static synchronized Metrics getDefault() {
+        if (defaultMetrics == null) {
+            defaultMetrics = new Metrics(ManagementFactory.getPlatformMBeanServer());
+            String dumpFile = System.getProperty("canteen.metrics.file");
+            if (dumpFile != null) {
+                defaultMetrics.startFileDump(Paths.get(dumpFile), Long.getLong("canteen.metrics.intervalMillis", 10_000L));
+            }
+        }
+        return defaultMetrics;
+    }
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram != null) {
+            return histogram;
+        }
+        synchronized (histograms) {
+            return histograms.computeIfAbsent(name, key -> {
+                LatencyHistogram created = new LatencyHistogram(key);
+                register("canteen:type=Latency,name=" + ObjectName.quote(key), created);
+                return created;
+            });
+        }
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            values.put(counter.getKey(), counter.getValue().sum());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            values.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        return values;
+    }
+
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append("# ").append(Instant.now()).append('\n');
+        for (LatencyHistogram histogram : new TreeMap<>(histograms).values()) {
+            report.append(histogram).append('\n');
+        }
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            report.append(counter.getKey()).append(" = ").append(counter.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> gauge : getGauges().entrySet()) {
+            report.append(gauge.getKey()).append(" = ").append(gauge.getValue()).append('\n');
+        }
+        return report.toString();
+    }
+
+    public synchronized void startFileDump(Path file, long intervalMillis) {
+        if (dumper != null) {
+            dumper.shutdownNow();
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            try {
+                Files.write(file, report().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                // A full disk must not take checkouts down with it; the next interval tries again
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopFileDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    private void register(String objectName, Object mbean) {
+        if (mbeanServer == null) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(objectName);
+            if (!mbeanServer.isRegistered(name)) {
+                mbeanServer.registerMBean(mbean, name);
+            }
+        } catch (JMException e) {
+            // Metrics stay readable in-process and in the dump file even if JMX refuses the bean
+        }
+    }
+}
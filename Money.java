@@ -0,0 +1,23 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class Money {
+    public static final int MINOR_PER_MAJOR = 100;
+
+    private Money() {
+    }
+
+    public static long toMinor(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static double toMajor(long minor) {
+        return minor / (double) MINOR_PER_MAJOR;
+    }
+
+    public static String format(long minor) {
+        long abs = Math.abs(minor);
+        long cents = abs % MINOR_PER_MAJOR;
+        return (minor < 0 ? "-¥" : "¥") + (abs / MINOR_PER_MAJOR) + (cents < 10 ? ".0" : ".") + cents;
+    }
+}
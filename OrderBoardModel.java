@@ -0,0 +1,107 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.table.AbstractTableModel;
+
+// Rows are only touched on the EDT, one batch from the OrderStatusBus at a time
+public class OrderBoardModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"Order", "Stall", "Status", "Ready In"};
+    // Finished orders stay on the board for a while so customers can find their number
+    private static final long CLOSED_ROW_MILLIS = 60_000;
+
+    private final List<Row> rows = new ArrayList<>();
+    private final Map<String, Row> rowsByOrderID = new HashMap<>();
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Row r = rows.get(row);
+        switch (column) {
+            case 0: return r.order.getOrderID();
+            case 1: return r.order.getVendor().getName();
+            case 2: return r.status;
+            default: return r.closedAt != 0 || r.status.equals("Pending") ? "" : (r.remainingMillis + 999) / 1000 + "s";
+        }
+    }
+
+    /** Applies one batch and returns the updates that closed an order, in the order they arrived. */
+    public List<OrderStatusBus.StatusUpdate> apply(List<OrderStatusBus.StatusUpdate> updates) {
+        List<OrderStatusBus.StatusUpdate> closed = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        int firstInserted = rows.size();
+        for (OrderStatusBus.StatusUpdate update : updates) {
+            Row row = rowsByOrderID.get(update.getOrder().getOrderID());
+            if (row == null) {
+                row = new Row(update.getOrder());
+                rows.add(row);
+                rowsByOrderID.put(update.getOrder().getOrderID(), row);
+            } else if (row.closedAt != 0) {
+                continue;
+            }
+            row.status = update.getStatus();
+            row.remainingMillis = update.getRemainingMillis();
+            if (update.isClosed()) {
+                row.closedAt = now;
+                closed.add(update);
+            }
+        }
+        if (prune(now)) {
+            fireTableDataChanged();
+            return closed;
+        }
+        if (firstInserted > 0) {
+            fireTableRowsUpdated(0, firstInserted - 1);
+        }
+        if (rows.size() > firstInserted) {
+            fireTableRowsInserted(firstInserted, rows.size() - 1);
+        }
+        return closed;
+    }
+
+    public int getOpenCount() {
+        int open = 0;
+        for (Row row : rows) {
+            if (row.closedAt == 0) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    private boolean prune(long now) {
+        return rows.removeIf(row -> {
+            if (row.closedAt != 0 && now - row.closedAt > CLOSED_ROW_MILLIS) {
+                rowsByOrderID.remove(row.order.getOrderID());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static class Row {
+        private final Order order;
+        private String status = "Pending";
+        private long remainingMillis;
+        private long closedAt;
+
+        private Row(Order order) {
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.AbstractListModel;
+
+public class OrderHistoryListModel extends AbstractListModel<Order> {
+    private static final long serialVersionUID = 1L;
+    private final Customer customer;
+    private final int pageSize;
+    private final List<Order> loaded = new ArrayList<>();
+
+    public OrderHistoryListModel(Customer customer, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        this.customer = customer;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public int getSize() {
+        return loaded.size();
+    }
+
+    @Override
+    public Order getElementAt(int index) {
+        return loaded.get(index);
+    }
+
+    public boolean hasMore() {
+        return loaded.size() < customer.getOrderCount();
+    }
+
+    public void loadNextPage() {
+        if (!hasMore()) {
+            return;
+        }
+        List<Order> page = customer.getOrderHistoryPage(loaded.size(), pageSize);
+        if (page.isEmpty()) {
+            return;
+        }
+        int first = loaded.size();
+        loaded.addAll(page);
+        fireIntervalAdded(this, first, loaded.size() - 1);
+    }
+}
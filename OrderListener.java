@@ -0,0 +1,19 @@
+public interface OrderListener {
+    default void orderPlaced(Order order) {
+    }
+
+    default void orderStatusChanged(Order order, String previousStatus) {
+    }
+
+    default void orderProgress(Order order, long remainingMillis) {
+    }
+
+    default void paymentDeclined(Cart cart, Payment payment, String reason) {
+    }
+
+    default void feedbackSubmitted(Feedback feedback) {
+    }
+
+    default void feedbackSaveFailed(Feedback feedback, Throwable error) {
+    }
+}
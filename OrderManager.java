@@ -1,47 +1,93 @@
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class OrderManager {
-    private List<Order> orders;
+    private Queue<Order> orders;
+    private Map<String, Order> ordersByID;
+    private Map<String, Queue<Order>> ordersByCustomer;
+    private Map<String, Queue<Order>> ordersByVendor;
+    private Map<String, Set<Order>> ordersByStatus;
+    private final OrderListener statusIndexer = new OrderListener() {
+        @Override
+        public void orderStatusChanged(Order order, String previousStatus) {
+            reindexStatus(order);
+        }
+    };
 
     public OrderManager() {
-        this.orders = new ArrayList<>();
+        this.orders = new ConcurrentLinkedQueue<>();
+        this.ordersByID = new ConcurrentHashMap<>();
+        this.ordersByCustomer = new ConcurrentHashMap<>();
+        this.ordersByVendor = new ConcurrentHashMap<>();
+        this.ordersByStatus = new ConcurrentHashMap<>();
     }
 
     public void placeOrder(Order order) {
+        if (ordersByID.putIfAbsent(order.getOrderID(), order) != null) {
+            return;
+        }
         orders.add(order);
+        ordersByCustomer.computeIfAbsent(order.getCustomer().getCustomerID(), k -> new ConcurrentLinkedQueue<>()).add(order);
+        ordersByVendor.computeIfAbsent(order.getVendor().getVendorID(), k -> new ConcurrentLinkedQueue<>()).add(order);
+        statusBucket(order.getStatus()).add(order);
+        order.addListener(statusIndexer);
+        // The order may have moved on between the first bucket insert and registering the listener
+        reindexStatus(order);
     }
 
-    public Order findOrder(String orderID) {
-        for (Order order : orders) {
-            if (order.getOrderID().equals(orderID)) {
-                return order;
+    private void reindexStatus(Order order) {
+        synchronized (order) {
+            String current = order.getStatus();
+            for (Map.Entry<String, Set<Order>> entry : ordersByStatus.entrySet()) {
+                if (!entry.getKey().equals(current)) {
+                    entry.getValue().remove(order);
+                }
             }
+            statusBucket(current).add(order);
         }
-        return null;
+    }
+
+    private Set<Order> statusBucket(String status) {
+        return ordersByStatus.computeIfAbsent(status, k -> ConcurrentHashMap.newKeySet());
+    }
+
+    public Order findOrder(String orderID) {
+        return ordersByID.get(orderID);
     }
 
     public List<Order> getOrders() {
-        return orders;
+        return new ArrayList<>(orders);
+    }
+
+    public int getOrderCount() {
+        return ordersByID.size();
     }
 
     public List<Order> getOrdersByCustomer(Customer customer) {
-        List<Order> customerOrders = new ArrayList<>();
-        for (Order order : orders) {
-            if (order.getCustomer().equals(customer)) {
-                customerOrders.add(order);
-            }
-        }
-        return customerOrders;
+        return snapshot(ordersByCustomer.get(customer.getCustomerID()));
     }
 
     public List<Order> getOrdersByVendor(Vendor vendor) {
-        List<Order> vendorOrders = new ArrayList<>();
-        for (Order order : orders) {
-            if (order.getVendor().equals(vendor)) {
-                vendorOrders.add(order);
-            }
-        }
-        return vendorOrders;
+        return snapshot(ordersByVendor.get(vendor.getVendorID()));
+    }
+
+    public List<Order> getOrdersByStatus(String status) {
+        Set<Order> bucket = ordersByStatus.get(status);
+        return bucket == null ? Collections.emptyList() : new ArrayList<>(bucket);
+    }
+
+    public int countOrdersByStatus(String status) {
+        Set<Order> bucket = ordersByStatus.get(status);
+        return bucket == null ? 0 : bucket.size();
+    }
+
+    private List<Order> snapshot(Queue<Order> bucket) {
+        return bucket == null ? Collections.emptyList() : new ArrayList<>(bucket);
     }
-}
\ No newline at end of file
+}
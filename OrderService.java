@@ -0,0 +1,246 @@
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+public class OrderService {
+    private static final LatencyHistogram CHECKOUT_LATENCY = Metrics.getDefault().histogram(Metrics.CHECKOUT);
+    private static final LatencyHistogram PAYMENT_LATENCY = Metrics.getDefault().histogram(Metrics.PAYMENT_PROCESS);
+    private static final LatencyHistogram FEEDBACK_SAVE_LATENCY = Metrics.getDefault().histogram(Metrics.FEEDBACK_SAVE);
+    private static final LongAdder CHECKOUTS = Metrics.getDefault().counter("checkout.placed");
+    private static final LongAdder DECLINES = Metrics.getDefault().counter("checkout.declined");
+    private static final LongAdder FEEDBACK_SAVE_FAILURES = Metrics.getDefault().counter("feedback.saveFailed");
+
+    private final Vendor vendor;
+    private final OrderManager orderManager;
+    private final List<OrderListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile SettlementPipeline settlementPipeline;
+    private final OrderListener forwarder = new OrderListener() {
+        @Override
+        public void orderStatusChanged(Order order, String previousStatus) {
+            for (OrderListener listener : listeners) {
+                listener.orderStatusChanged(order, previousStatus);
+            }
+        }
+
+        @Override
+        public void orderProgress(Order order, long remainingMillis) {
+            for (OrderListener listener : listeners) {
+                listener.orderProgress(order, remainingMillis);
+            }
+        }
+    };
+
+    public OrderService(Vendor vendor, OrderManager orderManager) {
+        this.vendor = vendor;
+        this.orderManager = orderManager;
+    }
+
+    public void addListener(OrderListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OrderListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void setSettlementPipeline(SettlementPipeline settlementPipeline) {
+        this.settlementPipeline = settlementPipeline;
+    }
+
+    public Order checkout(Cart cart, Payment payment) throws PaymentException {
+        long start = System.nanoTime();
+        try {
+            Order order = placeOrder(cart, payment);
+            CHECKOUTS.increment();
+            return order;
+        } catch (PaymentException e) {
+            DECLINES.increment();
+            throw e;
+        } finally {
+            CHECKOUT_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Places the order on orderExecutor but settles the payment on the settlement pipeline in between, so a serial
+     * executor keeps taking other checkouts while this one waits and concurrent payments can share a batch.
+     */
+    public CompletableFuture<Order> checkout(Cart cart, Payment payment, Executor orderExecutor) {
+        long start = System.nanoTime();
+        CompletableFuture<Order> placed = new CompletableFuture<>();
+        execute(orderExecutor, placed, () -> {
+            SettlementPipeline pipeline = settlementPipeline;
+            if (pipeline == null) {
+                completeWith(placed, () -> placeOrder(cart, payment));
+                return;
+            }
+            Order order;
+            try {
+                order = prepareOrder(cart, payment);
+            } catch (PaymentException e) {
+                placed.completeExceptionally(e);
+                return;
+            }
+            long paymentStart = System.nanoTime();
+            pipeline.submit(payment, order).whenComplete((result, error) -> execute(orderExecutor, placed, () -> {
+                PAYMENT_LATENCY.recordSince(paymentStart);
+                completeWith(placed, () -> settled(cart, payment, order, result, error));
+            }));
+        });
+        return placed.whenComplete((order, error) -> {
+            if (error == null) {
+                CHECKOUTS.increment();
+            } else if (error instanceof PaymentException) {
+                DECLINES.increment();
+            }
+            CHECKOUT_LATENCY.recordSince(start);
+        });
+    }
+
+    private Order placeOrder(Cart cart, Payment payment) throws PaymentException {
+        Order order = prepareOrder(cart, payment);
+        String reason = payment.getDeclineMessage();
+        boolean settled;
+        long paymentStart = System.nanoTime();
+        SettlementPipeline pipeline = settlementPipeline;
+        if (pipeline == null) {
+            settled = payment.processPayment(order);
+        } else {
+            try {
+                SettlementPipeline.SettlementResult result = pipeline.submit(payment, order).join();
+                settled = result.isSettled();
+                reason = result.getMessage();
+            } catch (CompletionException e) {
+                settled = false;
+                reason = "Settlement failed: " + e.getCause().getMessage();
+            }
+        }
+        PAYMENT_LATENCY.recordSince(paymentStart);
+        return completeOrder(cart, payment, order, settled, reason);
+    }
+
+    private Order prepareOrder(Cart cart, Payment payment) throws PaymentException {
+        if (cart.isEmpty()) {
+            throw new PaymentException("Cart is empty!");
+        }
+        if (payment.getAmountMinor() != cart.getTotalMinor()) {
+            throw new PaymentException("Payment amount does not match the cart total.");
+        }
+        return new Order(cart.getCustomer(), vendor, cart.getItems());
+    }
+
+    private Order settled(Cart cart, Payment payment, Order order, SettlementPipeline.SettlementResult result,
+                          Throwable error) throws PaymentException {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            return completeOrder(cart, payment, order, false, "Settlement failed: " + cause.getMessage());
+        }
+        return completeOrder(cart, payment, order, result.isSettled(), result.getMessage());
+    }
+
+    private Order completeOrder(Cart cart, Payment payment, Order order, boolean settled, String reason)
+            throws PaymentException {
+        if (!settled) {
+            order.cancelOrder();
+            for (OrderListener listener : listeners) {
+                listener.paymentDeclined(cart, payment, reason);
+            }
+            throw new PaymentException(reason);
+        }
+        order.recordPaymentMethod(payment.getMethod());
+        order.recordMenuVersion(cart.getMenuVersion());
+        order.recordStockSold();
+        order.addListener(forwarder);
+        cart.getCustomer().placeOrder(order);
+        orderManager.placeOrder(order);
+        cart.completeCheckout();
+        for (OrderListener listener : listeners) {
+            listener.orderPlaced(order);
+        }
+        order.startPreparation();
+        return order;
+    }
+
+    private interface OrderStep {
+        Order run() throws PaymentException;
+    }
+
+    private static void execute(Executor executor, CompletableFuture<Order> placed, Runnable step) {
+        try {
+            executor.execute(step);
+        } catch (RejectedExecutionException e) {
+            placed.completeExceptionally(e);
+        }
+    }
+
+    private static void completeWith(CompletableFuture<Order> placed, OrderStep step) {
+        try {
+            placed.complete(step.run());
+        } catch (PaymentException | RuntimeException e) {
+            placed.completeExceptionally(e);
+        }
+    }
+
+    public CompletableFuture<Order> checkoutAsync(Cart cart, DigitalPayment payment, PaymentAuthorizer authorizer,
+                                                  Executor cartExecutor) {
+        if (cart.isEmpty()) {
+            CompletableFuture<Order> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new PaymentException("Cart is empty!"));
+            return failed;
+        }
+        // The gateway round trip runs off the caller's thread; the cart is only touched again on cartExecutor
+        return authorizer.authorize(payment).thenApplyAsync(approved -> {
+            try {
+                return checkout(cart, payment);
+            } catch (PaymentException e) {
+                throw new CompletionException(e);
+            }
+        }, cartExecutor);
+    }
+
+    public void restoreOrder(Order order) {
+        order.addListener(forwarder);
+        order.getCustomer().placeOrder(order);
+        orderManager.placeOrder(order);
+        // Orders still in the kitchen when the terminal went down start cooking again
+        order.startPreparation();
+    }
+
+    public Feedback submitFeedback(Order order, int rating, String comments) {
+        Feedback feedback = new Feedback(IdGenerator.getDefault().nextId("FB"), order.getCustomer(), order, rating,
+                comments == null ? "" : comments);
+        order.getCustomer().submitFeedback(feedback);
+        vendor.addFeedback(feedback);
+        for (OrderListener listener : listeners) {
+            listener.feedbackSubmitted(feedback);
+        }
+        long saveStart = System.nanoTime();
+        feedback.saveToFile().whenComplete((written, error) -> {
+            FEEDBACK_SAVE_LATENCY.recordSince(saveStart);
+            if (error != null) {
+                FEEDBACK_SAVE_FAILURES.increment();
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                for (OrderListener listener : listeners) {
+                    listener.feedbackSaveFailed(feedback, cause);
+                }
+            }
+        });
+        return feedback;
+    }
+
+    public Order findOrder(String orderID) {
+        return orderManager.findOrder(orderID);
+    }
+
+    public Vendor getVendor() {
+        return vendor;
+    }
+
+    public OrderManager getOrderManager() {
+        return orderManager;
+    }
+}
@@ -0,0 +1,114 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects order events from any thread and hands them on in batches: at most one delivery per frame, carrying
+ * only the latest state of each order that changed since the previous delivery. However many orders are
+ * cooking, the listener's executor (the EDT for the terminal) sees a single task per frame.
+ */
+public class OrderStatusBus implements OrderListener {
+    public static final long DEFAULT_FRAME_MILLIS = 100;
+
+    private static final LongAdder EVENTS = Metrics.getDefault().counter("orderBus.events");
+    private static final LongAdder BATCHES = Metrics.getDefault().counter("orderBus.batches");
+
+    public interface BatchListener {
+        void ordersChanged(List<StatusUpdate> updates);
+    }
+
+    private final Executor deliveryExecutor;
+    private final long frameMillis;
+    private final BatchListener listener;
+    private final ScheduledExecutorService frameClock;
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    private Map<String, StatusUpdate> pending = new LinkedHashMap<>();
+
+    public OrderStatusBus(Executor deliveryExecutor, long frameMillis, BatchListener listener) {
+        if (frameMillis < 1) {
+            throw new IllegalArgumentException("Frame interval must be positive.");
+        }
+        this.deliveryExecutor = deliveryExecutor;
+        this.frameMillis = frameMillis;
+        this.listener = listener;
+        this.frameClock = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-status-bus");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void orderPlaced(Order order) {
+        post(order, order.getEtaMillis() - System.currentTimeMillis());
+    }
+
+    @Override
+    public void orderStatusChanged(Order order, String previousStatus) {
+        post(order, order.getEtaMillis() - System.currentTimeMillis());
+    }
+
+    @Override
+    public void orderProgress(Order order, long remainingMillis) {
+        post(order, remainingMillis);
+    }
+
+    public void shutdown() {
+        frameClock.shutdownNow();
+    }
+
+    private void post(Order order, long remainingMillis) {
+        EVENTS.increment();
+        StatusUpdate update = new StatusUpdate(order, order.getStatus(), Math.max(0, remainingMillis));
+        synchronized (this) {
+            // A progress tick racing the kitchen's last callback must not reopen a finished order
+            pending.merge(order.getOrderID(), update, (previous, next) -> previous.isClosed() && !next.isClosed() ? previous : next);
+        }
+        if (frameScheduled.compareAndSet(false, true)) {
+            frameClock.schedule(this::flush, frameMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        frameScheduled.set(false);
+        Map<String, StatusUpdate> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        BATCHES.increment();
+        List<StatusUpdate> updates = new ArrayList<>(batch.values());
+        deliveryExecutor.execute(() -> listener.ordersChanged(updates));
+    }
+
+    /** The state of one order as of the last event seen for it in a frame. */
+    public static class StatusUpdate {
+        private final Order order;
+        private final String status;
+        private final long remainingMillis;
+
+        StatusUpdate(Order order, String status, long remainingMillis) {
+            this.order = order;
+            this.status = status;
+            this.remainingMillis = remainingMillis;
+        }
+
+        public Order getOrder() { return order; }
+        public String getStatus() { return status; }
+        public long getRemainingMillis() { return remainingMillis; }
+
+        public boolean isClosed() {
+            return status.equals("Completed") || status.equals("Cancelled");
+        }
+    }
+}
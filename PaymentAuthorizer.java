@@ -0,0 +1,118 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PaymentAuthorizer {
+    private static final LatencyHistogram AUTHORIZE_LATENCY = Metrics.getDefault().histogram(Metrics.PAYMENT_AUTHORIZE);
+
+    private final PaymentGateway gateway;
+    private final long timeoutMillis;
+    private final Semaphore bulkhead;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final ScheduledExecutorService retryClock;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+    private volatile long openUntil;
+
+    public PaymentAuthorizer(PaymentGateway gateway, long timeoutMillis, int maxConcurrent, int maxAttempts,
+                             long baseBackoffMillis, int failureThreshold, long openMillis) {
+        if (timeoutMillis <= 0 || maxConcurrent < 1 || maxAttempts < 1 || failureThreshold < 1) {
+            throw new IllegalArgumentException("Authorizer limits must be positive.");
+        }
+        this.gateway = gateway;
+        this.timeoutMillis = timeoutMillis;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.retryClock = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "payment-authorizer-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Boolean> authorize(DigitalPayment payment) {
+        CompletableFuture<Boolean> decision = new CompletableFuture<>();
+        long start = System.nanoTime();
+        decision.whenComplete((approved, error) -> AUTHORIZE_LATENCY.recordSince(start));
+        attempt(payment, 1, decision);
+        return decision.thenApply(approved -> {
+            payment.recordGatewayDecision(approved);
+            return approved;
+        });
+    }
+
+    public boolean isCircuitOpen() {
+        return System.currentTimeMillis() < openUntil;
+    }
+
+    public int getAvailablePermits() {
+        return bulkhead.availablePermits();
+    }
+
+    public void shutdown() {
+        retryClock.shutdownNow();
+    }
+
+    private void attempt(DigitalPayment payment, int attempt, CompletableFuture<Boolean> decision) {
+        boolean trial = false;
+        if (consecutiveFailures.get() >= failureThreshold) {
+            // Open: fail fast until the cool-down passes, then let exactly one trial call through
+            if (isCircuitOpen() || !trialInFlight.compareAndSet(false, true)) {
+                decision.completeExceptionally(new PaymentException("Payment gateway is unavailable, try cash or retry shortly."));
+                return;
+            }
+            trial = true;
+        }
+        if (!bulkhead.tryAcquire()) {
+            if (trial) {
+                trialInFlight.set(false);
+            }
+            decision.completeExceptionally(new PaymentException("Payment gateway is busy, try again."));
+            return;
+        }
+        boolean halfOpenTrial = trial;
+        CompletableFuture<Boolean> call;
+        try {
+            call = gateway.authorize(payment.getPaymentID(), payment.getTransactionID(), payment.getAmountMinor());
+        } catch (RuntimeException e) {
+            call = new CompletableFuture<>();
+            call.completeExceptionally(e);
+        }
+        // Time out a copy: the gateway may hand the same future to the retry that shares this payment's key
+        call.copy().orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((approved, error) -> {
+            bulkhead.release();
+            if (halfOpenTrial) {
+                trialInFlight.set(false);
+            }
+            if (error == null) {
+                consecutiveFailures.set(0);
+                decision.complete(approved);
+                return;
+            }
+            if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                openUntil = System.currentTimeMillis() + openMillis;
+            }
+            if (attempt >= maxAttempts) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                decision.completeExceptionally(new PaymentException("Payment authorization failed: " + cause));
+                return;
+            }
+            // Full jitter keeps retries from many terminals from landing on the gateway together
+            long backoff = ThreadLocalRandom.current().nextLong(baseBackoffMillis * (1L << (attempt - 1)) + 1);
+            retryClock.schedule(() -> attempt(payment, attempt + 1, decision), backoff, TimeUnit.MILLISECONDS);
+        });
+    }
+}
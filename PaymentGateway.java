@@ -0,0 +1,6 @@
+import java.util.concurrent.CompletableFuture;
+
+public interface PaymentGateway {
+    // Every attempt for one payment carries the same key, so a retry after a lost reply cannot charge twice
+    CompletableFuture<Boolean> authorize(String idempotencyKey, String transactionID, long amountMinor);
+}
@@ -0,0 +1,4 @@
+public enum PaymentMethod {
+    CASH,
+    DIGITAL
+}
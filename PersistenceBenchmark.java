@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class PersistenceBenchmark {
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        PersistenceManager.Durability durability = args.length > 2
+                ? PersistenceManager.Durability.valueOf(args[2]) : PersistenceManager.Durability.GROUP_COMMIT;
+
+        Path directory = Files.createTempDirectory("canteen-wal-bench");
+        Vendor vendor = newVendor();
+        OrderService orderService = new OrderService(vendor, new OrderManager());
+        FoodItem momo = vendor.getMenu().findItemByID("F001");
+
+        PersistenceManager persistence = new PersistenceManager(directory, durability, 0);
+        persistence.recover();
+        persistence.attach(orderService);
+
+        AtomicInteger remaining = new AtomicInteger(orders);
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Customer customer = new Customer("C" + t, "Customer " + t);
+            Cart cart = new Cart("Cart" + t, customer);
+            persistence.attach(cart);
+            Thread writer = new Thread(() -> {
+                try {
+                    while (remaining.getAndDecrement() > 0) {
+                        cart.addItem(momo);
+                        cart.addItem(momo);
+                        orderService.checkout(cart, new CashPayment(IdGenerator.getDefault().nextId("PAY-"), 25.0, 25.0));
+                    }
+                } catch (PaymentException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+            }, "checkout-" + t);
+            writer.start();
+        }
+        done.await();
+        long writeNanos = System.nanoTime() - start;
+        persistence.close();
+
+        // A "full day" here is every record written above, replayed from the raw segments
+        long replayStart = System.nanoTime();
+        PersistenceManager replaying = new PersistenceManager(directory, durability, 0);
+        PersistentState replayed = replaying.recover();
+        long replayNanos = System.nanoTime() - replayStart;
+        long restoreStart = System.nanoTime();
+        VendorRegistry registry = new VendorRegistry();
+        registry.register(newVendor());
+        replayed.restoreInto(registry, new HashMap<>());
+        long restoreNanos = System.nanoTime() - restoreStart;
+        replaying.snapshot();
+        replaying.close();
+
+        long snapshotStart = System.nanoTime();
+        PersistenceManager fromSnapshot = new PersistenceManager(directory, durability, 0);
+        int snapshotOrders = fromSnapshot.recover().getOrderCount();
+        long snapshotNanos = System.nanoTime() - snapshotStart;
+        fromSnapshot.close();
+
+        System.out.println("Durability:                 " + durability);
+        System.out.println("Writer threads:             " + threads);
+        System.out.println("Orders written:             " + orders);
+        System.out.printf("Sustained orders/sec:       %.0f%n", orders / (writeNanos / 1e9));
+        System.out.println("Orders recovered:           " + replayed.getOrderCount());
+        System.out.printf("Recovery from log (ms):     %.1f%n", replayNanos / 1e6);
+        System.out.printf("Restore into domain (ms):   %.1f%n", restoreNanos / 1e6);
+        System.out.printf("Recovery from snapshot (ms): %.1f (%d orders)%n", snapshotNanos / 1e6, snapshotOrders);
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(PersistenceBenchmark::deleteQuietly);
+        }
+    }
+
+    private static Vendor newVendor() {
+        Vendor vendor = new Vendor("V001", "Abhyasi Cafe");
+        vendor.getMenu().addItem(new FoodItem("F001", "Veg Momo", 12.5, "Snacks"));
+        return vendor;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.delete(path);
+        } catch (IOException e) {
+            // Leave it behind; it is only a temp directory
+        }
+    }
+}
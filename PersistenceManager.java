@@ -0,0 +1,223 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PersistenceManager implements OrderListener, CartListener, Closeable {
+    public enum Durability { ASYNC, GROUP_COMMIT }
+
+    private static final int SNAPSHOT_MAGIC = 0x434D5331; // "CMS1"
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final LongAdder SYNC_FAILURES = Metrics.getDefault().counter("persistence.syncFailures");
+
+    private final Path directory;
+    private final Durability durability;
+    private final long snapshotEveryRecords;
+    // Closed orders beyond this many are left out of the snapshot; their money stays in the ledger totals
+    private final int closedOrdersKept = Integer.getInteger("canteen.persistence.closedOrdersKept", 1_000);
+    private final ScheduledExecutorService background;
+    private final AtomicLong recordsSinceSnapshot = new AtomicLong();
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private volatile WriteAheadLog log;
+    private volatile IOException lastError;
+
+    public PersistenceManager(Path directory, Durability durability, long snapshotEveryRecords) {
+        this.directory = directory;
+        this.durability = durability;
+        this.snapshotEveryRecords = snapshotEveryRecords;
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public PersistentState recover() throws IOException {
+        Files.createDirectories(directory);
+        PersistentState state = new PersistentState();
+        long coveredSegment = readSnapshot(directory.resolve(SNAPSHOT_FILE), state);
+        for (long segment : WriteAheadLog.segmentNumbers(directory)) {
+            if (segment > coveredSegment) {
+                WriteAheadLog.replay(WriteAheadLog.segmentPath(directory, segment), state::apply);
+            }
+        }
+        log = new WriteAheadLog(directory);
+        // Records that are not forced by a caller still reach the disk within a few milliseconds
+        background.scheduleWithFixedDelay(this::flushQuietly, 20, 20, TimeUnit.MILLISECONDS);
+        return state;
+    }
+
+    public void attach(Cart cart) {
+        cart.addListener(this);
+    }
+
+    public void attach(OrderService orderService) {
+        orderService.addListener(this);
+    }
+
+    public void attach(VendorRegistry registry) {
+        registry.addListener(this);
+    }
+
+    // The ledger is rebuilt from these records, so a sale is never on disk without its order or the other way round
+    @Override
+    public void orderPlaced(Order order) {
+        long amountMinor = 0;
+        for (Map.Entry<FoodItem, Integer> line : order.getItems().entrySet()) {
+            amountMinor += line.getKey().getPriceMinor() * line.getValue();
+        }
+        awaitDurable(append(PersistentState.ORDER_SETTLED, PersistentState.encodeSettledOrder(order,
+                LocalTime.now().getHour(), order.getPaymentMethod().ordinal(), amountMinor)));
+    }
+
+    @Override
+    public void orderStatusChanged(Order order, String previousStatus) {
+        append(PersistentState.ORDER_STATUS, PersistentState.encodeStatus(order.getOrderID(), order.getStatus()));
+    }
+
+    @Override
+    public void quantityChanged(Cart cart, FoodItem item, int quantity) {
+        Customer customer = cart.getCustomer();
+        append(PersistentState.CART_ITEM, PersistentState.encodeCartItem(cart.getCartID(), customer.getCustomerID(),
+                customer.getName(), item.getItemID(), quantity));
+    }
+
+    @Override
+    public void cartCleared(Cart cart) {
+        append(PersistentState.CART_CLEARED, PersistentState.encodeCartCleared(cart.getCartID()));
+    }
+
+    public void snapshot() throws IOException {
+        if (!snapshotRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            recordsSinceSnapshot.set(0);
+            long closedSegment = log.roll();
+            // Fold the previous snapshot and every closed segment; live objects are never read, so writers keep going
+            PersistentState state = new PersistentState();
+            Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+            long coveredSegment = readSnapshot(snapshotFile, state);
+            List<Long> segments = WriteAheadLog.segmentNumbers(directory);
+            for (long segment : segments) {
+                if (segment > coveredSegment && segment <= closedSegment) {
+                    WriteAheadLog.replay(WriteAheadLog.segmentPath(directory, segment), state::apply);
+                }
+            }
+            Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(closedSegment);
+                state.writeTo(out, closedOrdersKept);
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (long segment : segments) {
+                if (segment <= closedSegment) {
+                    Files.deleteIfExists(WriteAheadLog.segmentPath(directory, segment));
+                }
+            }
+        } finally {
+            snapshotRunning.set(false);
+        }
+    }
+
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public void close() throws IOException {
+        background.shutdown();
+        try {
+            background.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    private long append(byte type, byte[] payload) {
+        WriteAheadLog current = log;
+        if (current == null) {
+            throw new IllegalStateException("Call recover() before attaching persistence.");
+        }
+        long seq;
+        try {
+            seq = current.append(type, payload);
+        } catch (UncheckedIOException e) {
+            // The log has failed; the next sync reports it to whoever waits for durability
+            lastError = e.getCause();
+            return current.getDurableSeq() + 1;
+        }
+        if (snapshotEveryRecords > 0 && recordsSinceSnapshot.incrementAndGet() >= snapshotEveryRecords
+                && !snapshotRunning.get() && !background.isShutdown()) {
+            background.execute(this::snapshotQuietly);
+        }
+        return seq;
+    }
+
+    // Runs inside order listeners, so a failed sync is counted and kept for getLastError() rather than thrown
+    private void awaitDurable(long seq) {
+        if (durability != Durability.GROUP_COMMIT) {
+            return;
+        }
+        try {
+            log.sync(seq);
+        } catch (IOException e) {
+            lastError = e;
+            SYNC_FAILURES.increment();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            log.syncAll();
+        } catch (IOException e) {
+            lastError = e;
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            lastError = e;
+        }
+    }
+
+    private static long readSnapshot(Path file, PersistentState state) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Unrecognised snapshot file " + file + ".");
+            }
+            long coveredSegment = in.readLong();
+            WriteAheadLog.replay(in, state::apply);
+            return coveredSegment;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class PersistentState {
+    static final byte ORDER_PLACED = 1;
+    static final byte ORDER_STATUS = 2;
+    static final byte LEDGER = 3;
+    static final byte CART_ITEM = 4;
+    static final byte CART_CLEARED = 5;
+    // An order and the payment that settled it, in one record so recovery sees both or neither
+    static final byte ORDER_SETTLED = 6;
+
+    private static final int METHODS = PaymentMethod.values().length;
+    private static final int SLOTS = EarningsLedger.PERIODS * METHODS;
+
+    private final Map<String, OrderRecord> orders = new LinkedHashMap<>();
+    private final Map<String, long[]> ledgerTotals = new LinkedHashMap<>();
+    private final Map<String, long[]> ledgerCounts = new HashMap<>();
+    private final Map<String, CartRecord> carts = new LinkedHashMap<>();
+
+    public void apply(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case ORDER_PLACED: {
+                // A replayed placement never rewinds a status the log already moved forward
+                OrderRecord order = readOrder(in);
+                orders.putIfAbsent(order.orderID, order);
+                break;
+            }
+            case ORDER_SETTLED: {
+                OrderRecord order = readOrder(in);
+                int slot = in.readByte() * METHODS + in.readByte();
+                long amountMinor = in.readLong();
+                if (orders.putIfAbsent(order.orderID, order) == null) {
+                    ledgerTotals.computeIfAbsent(order.vendorID, k -> new long[SLOTS])[slot] += amountMinor;
+                    ledgerCounts.computeIfAbsent(order.vendorID, k -> new long[SLOTS])[slot]++;
+                }
+                break;
+            }
+            case ORDER_STATUS: {
+                OrderRecord order = orders.get(in.readUTF());
+                String status = in.readUTF();
+                if (order != null) {
+                    order.status = status;
+                }
+                break;
+            }
+            case LEDGER: {
+                String vendorID = in.readUTF();
+                int slot = in.readByte() * METHODS + in.readByte();
+                ledgerTotals.computeIfAbsent(vendorID, k -> new long[SLOTS])[slot] += in.readLong();
+                ledgerCounts.computeIfAbsent(vendorID, k -> new long[SLOTS])[slot] += in.readInt();
+                break;
+            }
+            case CART_ITEM: {
+                String cartID = in.readUTF();
+                CartRecord cart = carts.computeIfAbsent(cartID, k -> new CartRecord(cartID));
+                cart.customerID = in.readUTF();
+                cart.customerName = in.readUTF();
+                String itemID = in.readUTF();
+                int quantity = in.readInt();
+                if (quantity <= 0) {
+                    cart.lines.remove(itemID);
+                } else {
+                    cart.lines.put(itemID, quantity);
+                }
+                break;
+            }
+            case CART_CLEARED: {
+                CartRecord cart = carts.get(in.readUTF());
+                if (cart != null) {
+                    cart.lines.clear();
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown record type " + type + ".");
+        }
+    }
+
+    /**
+     * A snapshot is the same record stream, folded down to one record per order, ledger slot and cart line. Money is
+     * already in the ledger slots, so only open orders and the newest closedOrdersKept closed ones are written.
+     */
+    public void writeTo(DataOutputStream out, int closedOrdersKept) throws IOException {
+        int closed = 0;
+        for (OrderRecord order : orders.values()) {
+            if (order.isClosed()) {
+                closed++;
+            }
+        }
+        int closedToDrop = Math.max(0, closed - closedOrdersKept);
+        for (OrderRecord order : orders.values()) {
+            if (order.isClosed() && closedToDrop-- > 0) {
+                continue;
+            }
+            WriteAheadLog.writeFrame(out, ORDER_PLACED, encodeOrder(order.orderID, order.customerID, order.customerName,
+                    order.vendorID, order.status, order.lines));
+        }
+        for (Map.Entry<String, long[]> entry : ledgerTotals.entrySet()) {
+            long[] totals = entry.getValue();
+            long[] counts = ledgerCounts.get(entry.getKey());
+            for (int slot = 0; slot < SLOTS; slot++) {
+                if (totals[slot] != 0 || counts[slot] != 0) {
+                    WriteAheadLog.writeFrame(out, LEDGER, encodeLedger(entry.getKey(), slot / METHODS, slot % METHODS,
+                            totals[slot], (int) counts[slot]));
+                }
+            }
+        }
+        for (CartRecord cart : carts.values()) {
+            for (Map.Entry<String, Integer> line : cart.lines.entrySet()) {
+                WriteAheadLog.writeFrame(out, CART_ITEM, encodeCartItem(cart.cartID, cart.customerID, cart.customerName,
+                        line.getKey(), line.getValue()));
+            }
+        }
+    }
+
+    public Map<String, Cart> restoreInto(VendorRegistry registry, Map<String, Customer> customers) {
+        Map<String, Vendor> vendors = registry.getVendors();
+        for (OrderRecord record : orders.values()) {
+            Vendor vendor = vendors.get(record.vendorID);
+            if (vendor == null) {
+                continue;
+            }
+            Map<FoodItem, Integer> items = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> line : record.lines.entrySet()) {
+                FoodItem item = vendor.getMenu().findItemByID(line.getKey());
+                if (item != null) {
+                    items.put(item, line.getValue());
+                }
+            }
+            Customer customer = customers.computeIfAbsent(record.customerID, id -> new Customer(id, record.customerName));
+            registry.getShard(vendor).getOrderService()
+                    .restoreOrder(new Order(record.orderID, customer, vendor, items, record.status));
+        }
+        for (Map.Entry<String, long[]> entry : ledgerTotals.entrySet()) {
+            Vendor vendor = vendors.get(entry.getKey());
+            if (vendor == null) {
+                continue;
+            }
+            long[] totals = entry.getValue();
+            long[] counts = ledgerCounts.get(entry.getKey());
+            for (int slot = 0; slot < SLOTS; slot++) {
+                if (totals[slot] != 0 || counts[slot] != 0) {
+                    vendor.getLedger().record(PaymentMethod.values()[slot % METHODS], slot / METHODS, totals[slot], (int) counts[slot]);
+                }
+            }
+        }
+        Map<String, Cart> restoredCarts = new LinkedHashMap<>();
+        for (CartRecord record : carts.values()) {
+            Customer customer = customers.computeIfAbsent(record.customerID, id -> new Customer(id, record.customerName));
+            Cart cart = new Cart(record.cartID, customer);
+            for (Map.Entry<String, Integer> line : record.lines.entrySet()) {
+                FoodItem item = registry.findItemByID(line.getKey());
+                try {
+                    for (int i = 0; item != null && i < line.getValue(); i++) {
+                        cart.addItem(item);
+                    }
+                } catch (SoldOutException e) {
+                    // A saved cart gets back only what is still on the shelf
+                }
+            }
+            restoredCarts.put(record.cartID, cart);
+        }
+        return restoredCarts;
+    }
+
+    public int getOrderCount() {
+        return orders.size();
+    }
+
+    static byte[] encodeOrder(String orderID, String customerID, String customerName, String vendorID, String status,
+                              Map<String, Integer> lines) {
+        return encode(out -> {
+            out.writeUTF(orderID);
+            out.writeUTF(customerID);
+            out.writeUTF(customerName);
+            out.writeUTF(vendorID);
+            out.writeUTF(status);
+            out.writeInt(lines.size());
+            for (Map.Entry<String, Integer> line : lines.entrySet()) {
+                out.writeUTF(line.getKey());
+                out.writeInt(line.getValue());
+            }
+        });
+    }
+
+    static byte[] encodeOrder(Order order) {
+        return encode(out -> writeOrder(out, order));
+    }
+
+    static byte[] encodeSettledOrder(Order order, int period, int method, long amountMinor) {
+        return encode(out -> {
+            writeOrder(out, order);
+            out.writeByte(period);
+            out.writeByte(method);
+            out.writeLong(amountMinor);
+        });
+    }
+
+    private static void writeOrder(DataOutputStream out, Order order) throws IOException {
+        out.writeUTF(order.getOrderID());
+        out.writeUTF(order.getCustomer().getCustomerID());
+        out.writeUTF(order.getCustomer().getName());
+        out.writeUTF(order.getVendor().getVendorID());
+        out.writeUTF(order.getStatus());
+        out.writeInt(order.getItems().size());
+        for (Map.Entry<FoodItem, Integer> line : order.getItems().entrySet()) {
+            out.writeUTF(line.getKey().getItemID());
+            out.writeInt(line.getValue());
+        }
+    }
+
+    private static OrderRecord readOrder(DataInputStream in) throws IOException {
+        OrderRecord order = new OrderRecord(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+        int lines = in.readInt();
+        for (int i = 0; i < lines; i++) {
+            order.lines.merge(in.readUTF(), in.readInt(), Integer::sum);
+        }
+        return order;
+    }
+
+    static byte[] encodeStatus(String orderID, String status) {
+        return encode(out -> {
+            out.writeUTF(orderID);
+            out.writeUTF(status);
+        });
+    }
+
+    static byte[] encodeLedger(String vendorID, int period, int method, long amountMinor, int payments) {
+        return encode(out -> {
+            out.writeUTF(vendorID);
+            out.writeByte(period);
+            out.writeByte(method);
+            out.writeLong(amountMinor);
+            out.writeInt(payments);
+        });
+    }
+
+    static byte[] encodeCartItem(String cartID, String customerID, String customerName, String itemID, int quantity) {
+        return encode(out -> {
+            out.writeUTF(cartID);
+            out.writeUTF(customerID);
+            out.writeUTF(customerName);
+            out.writeUTF(itemID);
+            out.writeInt(quantity);
+        });
+    }
+
+    static byte[] encodeCartCleared(String cartID) {
+        return encode(out -> out.writeUTF(cartID));
+    }
+
+    private interface Encoder {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(Encoder encoder) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            encoder.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static class OrderRecord {
+        private final String orderID;
+        private final String customerID;
+        private final String customerName;
+        private final String vendorID;
+        private String status;
+        private final Map<String, Integer> lines = new LinkedHashMap<>();
+
+        private OrderRecord(String orderID, String customerID, String customerName, String vendorID, String status) {
+            this.orderID = orderID;
+            this.customerID = customerID;
+            this.customerName = customerName;
+            this.vendorID = vendorID;
+            this.status = status;
+        }
+
+        private boolean isClosed() {
+            return status.equals("Completed") || status.equals("Cancelled");
+        }
+    }
+
+    private static class CartRecord {
+        private final String cartID;
+        private String customerID;
+        private String customerName;
+        private final Map<String, Integer> lines = new LinkedHashMap<>();
+
+        private CartRecord(String cartID) {
+            this.cartID = cartID;
+        }
+    }
+}
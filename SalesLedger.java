@@ -0,0 +1,361 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Completed order lines stored column by column in memory-mapped files, so scans touch primitives only.
+ *
+ * Completions arrive on kitchen threads with the order's lock held, so they are only queued there; one writer
+ * thread does all the file work, and a failed write is counted and kept for getLastError(), never thrown back.
+ */
+public class SalesLedger implements OrderListener, Closeable {
+    public static final byte UNKNOWN_METHOD = -1;
+
+    private static final int INITIAL_ROWS = 64 * 1024;
+    private static final Runnable STOP = () -> { };
+    private static final LongAdder APPEND_FAILURES = Metrics.getDefault().counter("salesLedger.appendFailures");
+
+    private final Path directory;
+    private final Column timestamps;
+    private final Column vendors;
+    private final Column items;
+    private final Column quantities;
+    private final Column unitPrices;
+    private final Column methods;
+    private final FileChannel metaChannel;
+    private final MappedByteBuffer meta;
+    private final Dictionary vendorCodes;
+    private final Dictionary itemCodes;
+    private volatile int rowCount;
+    private final BlockingQueue<Runnable> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile IOException lastError;
+
+    public SalesLedger(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.metaChannel = FileChannel.open(directory.resolve("rows.meta"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.meta = metaChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+        // The row count is written after the columns, so a crash mid-append leaves the last row invisible
+        this.rowCount = (int) meta.getLong(0);
+        this.timestamps = new Column(directory.resolve("timestamp.col"), Long.BYTES, rowCount);
+        this.vendors = new Column(directory.resolve("vendor.col"), Integer.BYTES, rowCount);
+        this.items = new Column(directory.resolve("item.col"), Integer.BYTES, rowCount);
+        this.quantities = new Column(directory.resolve("quantity.col"), Integer.BYTES, rowCount);
+        this.unitPrices = new Column(directory.resolve("unitPrice.col"), Long.BYTES, rowCount);
+        this.methods = new Column(directory.resolve("payment.col"), Byte.BYTES, rowCount);
+        this.vendorCodes = new Dictionary(directory.resolve("vendors.dict"));
+        this.itemCodes = new Dictionary(directory.resolve("items.dict"));
+        this.writer = new Thread(this::writeLoop, "sales-ledger");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void orderStatusChanged(Order order, String previousStatus) {
+        if (!"Completed".equals(order.getStatus())) {
+            return;
+        }
+        PaymentMethod method = order.getPaymentMethod();
+        byte methodCode = method == null ? UNKNOWN_METHOD : (byte) method.ordinal();
+        String vendorID = order.getVendor().getVendorID();
+        long completedAt = System.currentTimeMillis();
+        if (closed) {
+            APPEND_FAILURES.increment();
+            return;
+        }
+        pending.add(() -> {
+            try {
+                for (Map.Entry<FoodItem, Integer> line : order.getItems().entrySet()) {
+                    FoodItem item = line.getKey();
+                    append(completedAt, vendorID, item.getItemID(), line.getValue(), item.getPriceMinor(), methodCode);
+                }
+            } catch (IOException e) {
+                lastError = e;
+                APPEND_FAILURES.increment();
+            }
+        });
+    }
+
+    /** Waits until every completion queued before this call has been written. */
+    public void awaitWritten() throws InterruptedException {
+        CountDownLatch written = new CountDownLatch(1);
+        pending.add(written::countDown);
+        written.await();
+    }
+
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Runnable next;
+            try {
+                next = pending.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (next == STOP) {
+                return;
+            }
+            next.run();
+        }
+    }
+
+    public synchronized void append(long timestampMillis, String vendorID, String itemID, int quantity,
+                                    long unitPriceMinor, byte methodCode) throws IOException {
+        int row = rowCount;
+        // Scans binary-search the timestamp column, so it must never go backwards
+        long timestamp = row == 0 ? timestampMillis : Math.max(timestampMillis, timestamps.getLong(row - 1));
+        timestamps.putLong(row, timestamp);
+        vendors.putInt(row, vendorCodes.codeOf(vendorID));
+        items.putInt(row, itemCodes.codeOf(itemID));
+        quantities.putInt(row, quantity);
+        unitPrices.putLong(row, unitPriceMinor);
+        methods.putByte(row, methodCode);
+        meta.putLong(0, row + 1);
+        rowCount = row + 1;
+    }
+
+    public Map<String, Long> revenueByItemLastDays(int days) {
+        long to = System.currentTimeMillis() + 1;
+        long[] revenue = revenueByItem(null, to - TimeUnit.DAYS.toMillis(days), to);
+        Map<String, Long> byItemID = new LinkedHashMap<>();
+        for (int code = 0; code < revenue.length; code++) {
+            if (revenue[code] != 0) {
+                byItemID.put(itemCodes.valueOf(code), revenue[code]);
+            }
+        }
+        return byItemID;
+    }
+
+    // Revenue in minor units indexed by item code, for rows in [fromMillis, toMillis); a null vendorID means all vendors
+    public long[] revenueByItem(String vendorID, long fromMillis, long toMillis) {
+        return sumByItem(vendorID, fromMillis, toMillis, true);
+    }
+
+    public long[] quantityByItem(String vendorID, long fromMillis, long toMillis) {
+        return sumByItem(vendorID, fromMillis, toMillis, false);
+    }
+
+    public long[] revenueByMethod(long fromMillis, long toMillis) {
+        int rows = rowCount;
+        long[] revenue = new long[PaymentMethod.values().length];
+        MappedByteBuffer time = timestamps.buffer;
+        MappedByteBuffer quantity = quantities.buffer;
+        MappedByteBuffer price = unitPrices.buffer;
+        MappedByteBuffer method = methods.buffer;
+        for (int row = firstRowAtOrAfter(fromMillis, rows); row < rows; row++) {
+            if (time.getLong(row * Long.BYTES) >= toMillis) {
+                break;
+            }
+            byte code = method.get(row);
+            if (code >= 0) {
+                revenue[code] += quantity.getInt(row * Integer.BYTES) * price.getLong(row * Long.BYTES);
+            }
+        }
+        return revenue;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getItemCodeCount() {
+        return itemCodes.size();
+    }
+
+    public String getItemID(int code) {
+        return itemCodes.valueOf(code);
+    }
+
+    public String getVendorID(int code) {
+        return vendorCodes.valueOf(code);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public synchronized void force() {
+        timestamps.buffer.force();
+        vendors.buffer.force();
+        items.buffer.force();
+        quantities.buffer.force();
+        unitPrices.buffer.force();
+        methods.buffer.force();
+        meta.force();
+    }
+
+    // Queued completions are written first; the writer is never interrupted, since that would close the channels
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        pending.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeFiles();
+    }
+
+    private synchronized void closeFiles() throws IOException {
+        force();
+        timestamps.channel.close();
+        vendors.channel.close();
+        items.channel.close();
+        quantities.channel.close();
+        unitPrices.channel.close();
+        methods.channel.close();
+        metaChannel.close();
+    }
+
+    private long[] sumByItem(String vendorID, long fromMillis, long toMillis, boolean weightByPrice) {
+        int rows = rowCount;
+        int vendorCode = vendorID == null ? -1 : vendorCodes.find(vendorID);
+        long[] sums = new long[itemCodes.size()];
+        if (vendorID != null && vendorCode < 0) {
+            return sums;
+        }
+        MappedByteBuffer time = timestamps.buffer;
+        MappedByteBuffer vendor = vendors.buffer;
+        MappedByteBuffer item = items.buffer;
+        MappedByteBuffer quantity = quantities.buffer;
+        MappedByteBuffer price = unitPrices.buffer;
+        for (int row = firstRowAtOrAfter(fromMillis, rows); row < rows; row++) {
+            if (time.getLong(row * Long.BYTES) >= toMillis) {
+                break;
+            }
+            if (vendorCode >= 0 && vendor.getInt(row * Integer.BYTES) != vendorCode) {
+                continue;
+            }
+            int code = item.getInt(row * Integer.BYTES);
+            long units = quantity.getInt(row * Integer.BYTES);
+            sums[code] += weightByPrice ? units * price.getLong(row * Long.BYTES) : units;
+        }
+        return sums;
+    }
+
+    private int firstRowAtOrAfter(long timestampMillis, int rows) {
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps.getLong(mid) < timestampMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static class Column {
+        private final FileChannel channel;
+        private final int width;
+        // Replaced when the file grows; readers take one reference and keep using it for the whole scan
+        private volatile MappedByteBuffer buffer;
+
+        private Column(Path file, int width, int rows) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.width = width;
+            this.buffer = map(Math.max(INITIAL_ROWS, Integer.highestOneBit(Math.max(1, rows)) * 2));
+        }
+
+        private MappedByteBuffer map(int rows) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) rows * width);
+        }
+
+        private void ensureRow(int row) throws IOException {
+            int capacity = buffer.capacity() / width;
+            if (row >= capacity) {
+                if ((long) capacity * 2 * width > Integer.MAX_VALUE) {
+                    throw new IOException("Sales ledger column is full at " + capacity + " rows.");
+                }
+                buffer = map(capacity * 2);
+            }
+        }
+
+        private long getLong(int row) {
+            return buffer.getLong(row * Long.BYTES);
+        }
+
+        private void putLong(int row, long value) throws IOException {
+            ensureRow(row);
+            buffer.putLong(row * Long.BYTES, value);
+        }
+
+        private void putInt(int row, int value) throws IOException {
+            ensureRow(row);
+            buffer.putInt(row * Integer.BYTES, value);
+        }
+
+        private void putByte(int row, byte value) throws IOException {
+            ensureRow(row);
+            buffer.put(row, value);
+        }
+    }
+
+    // Vendor and item IDs are stored once, one per line; the columns hold their line numbers
+    private static class Dictionary {
+        private final Path file;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile List<String> values = new ArrayList<>();
+
+        private Dictionary(Path file) throws IOException {
+            this.file = file;
+            if (Files.exists(file)) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    codes.put(line, values.size());
+                    values.add(line);
+                }
+            }
+        }
+
+        private synchronized int codeOf(String value) throws IOException {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            Files.write(file, (value + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            List<String> grown = new ArrayList<>(values);
+            grown.add(value);
+            codes.put(value, grown.size() - 1);
+            values = grown;
+            return grown.size() - 1;
+        }
+
+        private synchronized int find(String value) {
+            Integer code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+
+        private String valueOf(int code) {
+            return values.get(code);
+        }
+
+        private int size() {
+            return values.size();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SettlementPipeline {
+    private final BlockingQueue<PendingSettlement> queue = new LinkedBlockingQueue<>();
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final Thread settler;
+    private final AtomicLong batchesApplied = new AtomicLong();
+    private final AtomicLong paymentsSettled = new AtomicLong();
+    private volatile boolean running = true;
+
+    public SettlementPipeline(int maxBatch, long lingerMicros) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        this.maxBatch = maxBatch;
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        this.settler = new Thread(this::settleLoop, "settlement-pipeline");
+        this.settler.setDaemon(true);
+        this.settler.start();
+    }
+
+    public CompletableFuture<SettlementResult> submit(Payment payment, Order order) {
+        CompletableFuture<SettlementResult> result = new CompletableFuture<>();
+        PendingSettlement pending = new PendingSettlement(payment, order, result);
+        queue.add(pending);
+        // Checked after enqueueing: if the settler stopped in between, whoever removes the entry owns it
+        if (!running && queue.remove(pending)) {
+            result.completeExceptionally(new RejectedExecutionException("Settlement pipeline is shut down."));
+        }
+        return result;
+    }
+
+    public long getBatchesApplied() {
+        return batchesApplied.get();
+    }
+
+    public long getPaymentsSettled() {
+        return paymentsSettled.get();
+    }
+
+    public void shutdown() {
+        running = false;
+        settler.interrupt();
+    }
+
+    private void settleLoop() {
+        List<PendingSettlement> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                batch.add(queue.take());
+                // Linger briefly so terminals settling at the same moment share one ledger update
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || wait <= 0) {
+                        break;
+                    }
+                    PendingSettlement next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                queue.drainTo(batch);
+            }
+            settle(batch);
+            batch.clear();
+        }
+    }
+
+    private void settle(List<PendingSettlement> batch) {
+        Map<Vendor, Map<PaymentMethod, List<PendingSettlement>>> groups = new LinkedHashMap<>();
+        for (PendingSettlement pending : batch) {
+            groups.computeIfAbsent(pending.order.getVendor(), v -> new EnumMap<>(PaymentMethod.class))
+                    .computeIfAbsent(pending.payment.getMethod(), m -> new ArrayList<>())
+                    .add(pending);
+        }
+        for (Map.Entry<Vendor, Map<PaymentMethod, List<PendingSettlement>>> vendorGroup : groups.entrySet()) {
+            for (Map.Entry<PaymentMethod, List<PendingSettlement>> group : vendorGroup.getValue().entrySet()) {
+                settleGroup(vendorGroup.getKey(), group.getKey(), group.getValue());
+            }
+        }
+    }
+
+    private void settleGroup(Vendor vendor, PaymentMethod method, List<PendingSettlement> group) {
+        long batchID = batchesApplied.incrementAndGet();
+        Set<String> seenPayments = new HashSet<>();
+        List<PendingSettlement> accepted = new ArrayList<>(group.size());
+        long totalMinor = 0;
+        for (PendingSettlement pending : group) {
+            String reason = validate(pending, seenPayments);
+            if (reason != null) {
+                pending.result.complete(new SettlementResult(pending.payment.getPaymentID(), false, reason, batchID, group.size()));
+            } else {
+                accepted.add(pending);
+                totalMinor += pending.payment.getAmountMinor();
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        try {
+            vendor.updateEarnings(method, totalMinor, accepted.size());
+        } catch (RuntimeException e) {
+            for (PendingSettlement pending : accepted) {
+                pending.result.completeExceptionally(e);
+            }
+            return;
+        }
+        paymentsSettled.addAndGet(accepted.size());
+        for (PendingSettlement pending : accepted) {
+            pending.result.complete(new SettlementResult(pending.payment.getPaymentID(), true, "Payment processed!", batchID, group.size()));
+        }
+    }
+
+    private static String validate(PendingSettlement pending, Set<String> seenPayments) {
+        Payment payment = pending.payment;
+        if (payment.getAmountMinor() <= 0) {
+            return "Payment amount must be positive.";
+        }
+        if (!seenPayments.add(payment.getPaymentID())) {
+            return "Duplicate payment " + payment.getPaymentID() + ".";
+        }
+        if (!payment.isAuthorized()) {
+            return payment.getDeclineMessage();
+        }
+        return null;
+    }
+
+    public static class SettlementResult {
+        private final String paymentID;
+        private final boolean settled;
+        private final String message;
+        private final long batchID;
+        private final int batchSize;
+
+        SettlementResult(String paymentID, boolean settled, String message, long batchID, int batchSize) {
+            this.paymentID = paymentID;
+            this.settled = settled;
+            this.message = message;
+            this.batchID = batchID;
+            this.batchSize = batchSize;
+        }
+
+        public String getPaymentID() { return paymentID; }
+        public boolean isSettled() { return settled; }
+        public String getMessage() { return message; }
+        public long getBatchID() { return batchID; }
+        public int getBatchSize() { return batchSize; }
+    }
+
+    private static class PendingSettlement {
+        private final Payment payment;
+        private final Order order;
+        private final CompletableFuture<SettlementResult> result;
+
+        private PendingSettlement(Payment payment, Order order, CompletableFuture<SettlementResult> result) {
+            this.payment = payment;
+            this.order = order;
+            this.result = result;
+        }
+    }
+}
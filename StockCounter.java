@@ -0,0 +1,114 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock for one menu item: units on hand and units held by carts, packed into a single long so every change is
+ * one compare-and-set and the two can never be seen out of step. Terminals selling the same item contend on a
+ * cache line, not a monitor.
+ *
+ * An item starts untracked and can always be reserved; setting the quantity on hand starts enforcing it.
+ */
+public class StockCounter {
+    private static final long RESERVED_MASK = 0xFFFF_FFFFL;
+    private static final long TRACKED = 1L << 63;
+
+    // Top bit: tracked. Next 31 bits: units on hand. Low 32 bits: units reserved by open carts.
+    // The flag lives in the same word so a reserve can never see the new quantity without it, or the reverse.
+    private final AtomicLong state = new AtomicLong();
+
+    public boolean reserve(int quantity) {
+        checkQuantity(quantity);
+        while (true) {
+            long current = state.get();
+            if (isTracked(current) && onHand(current) - reserved(current) < quantity) {
+                return false;
+            }
+            if (state.compareAndSet(current, current + quantity)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(int quantity) {
+        checkQuantity(quantity);
+        long current;
+        do {
+            current = state.get();
+            checkReserved(current, quantity);
+        } while (!state.compareAndSet(current, current - quantity));
+    }
+
+    // A sale: the reservation and the unit on hand go together
+    public void confirm(int quantity) {
+        checkQuantity(quantity);
+        long current;
+        long next;
+        do {
+            current = state.get();
+            checkReserved(current, quantity);
+            // On hand may have been set below what carts already held; it bottoms out at zero
+            int left = isTracked(current) ? Math.max(0, onHand(current) - quantity) : onHand(current);
+            next = (current & TRACKED) | ((long) left << 32) | ((reserved(current) - quantity) & RESERVED_MASK);
+        } while (!state.compareAndSet(current, next));
+    }
+
+    public void restock(int quantity) {
+        checkQuantity(quantity);
+        long current;
+        do {
+            current = state.get();
+            if (!isTracked(current)) {
+                return;
+            }
+        } while (!state.compareAndSet(current, current + ((long) quantity << 32)));
+    }
+
+    public void setOnHand(int quantity) {
+        checkQuantity(quantity);
+        long current;
+        do {
+            current = state.get();
+        } while (!state.compareAndSet(current, TRACKED | ((long) quantity << 32) | (current & RESERVED_MASK)));
+    }
+
+    public boolean isTracked() {
+        return isTracked(state.get());
+    }
+
+    public int getOnHand() {
+        return onHand(state.get());
+    }
+
+    public int getReserved() {
+        return reserved(state.get());
+    }
+
+    public int getAvailable() {
+        long current = state.get();
+        return isTracked(current) ? Math.max(0, onHand(current) - reserved(current)) : Integer.MAX_VALUE;
+    }
+
+    private static boolean isTracked(long state) {
+        return (state & TRACKED) != 0;
+    }
+
+    private static int onHand(long state) {
+        return (int) ((state & ~TRACKED) >>> 32);
+    }
+
+    private static int reserved(long state) {
+        return (int) (state & RESERVED_MASK);
+    }
+
+    // Taking more than is reserved would borrow from the units on hand
+    private static void checkReserved(long state, int quantity) {
+        if (reserved(state) < quantity) {
+            throw new IllegalStateException(quantity + " units are not reserved; only " + reserved(state) + " are.");
+        }
+    }
+
+    private static void checkQuantity(int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Stock quantity cannot be negative.");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StubPaymentGateway implements PaymentGateway {
+    private final long minLatencyMillis;
+    private final long maxLatencyMillis;
+    private final double failureRate;
+    private final ScheduledExecutorService clock;
+    private final AtomicLong calls = new AtomicLong();
+    // Like a real gateway, a repeated key gets the first decision back rather than a second charge
+    private final IdempotencyCache<Boolean> decisions =
+            new IdempotencyCache<>(IdempotencyCache.DEFAULT_CAPACITY, IdempotencyCache.DEFAULT_TTL_MILLIS);
+
+    public StubPaymentGateway(long minLatencyMillis, long maxLatencyMillis, double failureRate) {
+        if (minLatencyMillis < 0 || maxLatencyMillis < minLatencyMillis) {
+            throw new IllegalArgumentException("Latency range is invalid.");
+        }
+        if (failureRate < 0 || failureRate > 1) {
+            throw new IllegalArgumentException("Failure rate must be between 0 and 1.");
+        }
+        this.minLatencyMillis = minLatencyMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.failureRate = failureRate;
+        this.clock = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stub-payment-gateway");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> authorize(String idempotencyKey, String transactionID, long amountMinor) {
+        calls.incrementAndGet();
+        return decisions.execute(idempotencyKey, () -> decide(transactionID, amountMinor));
+    }
+
+    private CompletableFuture<Boolean> decide(String transactionID, long amountMinor) {
+        CompletableFuture<Boolean> decision = new CompletableFuture<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latency = minLatencyMillis == maxLatencyMillis ? minLatencyMillis
+                : random.nextLong(minLatencyMillis, maxLatencyMillis + 1);
+        boolean fails = random.nextDouble() < failureRate;
+        clock.schedule(() -> {
+            if (fails) {
+                decision.completeExceptionally(new IOException("Stub gateway failure for " + transactionID + "."));
+            } else {
+                decision.complete(transactionID.startsWith("TXN") && amountMinor > 0);
+            }
+        }, latency, TimeUnit.MILLISECONDS);
+        return decision;
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getReplayedCalls() {
+        return decisions.getHits();
+    }
+
+    public void shutdown() {
+        clock.shutdownNow();
+    }
+}
@@ -0,0 +1,250 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Running aggregates updated as orders complete and feedback arrives; no read ever rescans history
+public class VendorAnalytics {
+    public enum Span {
+        LAST_HOUR(60_000L, 60),
+        LAST_DAY(3_600_000L, 24);
+
+        private final long bucketMillis;
+        private final int buckets;
+
+        Span(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+    }
+
+    private final Map<Span, SlidingWindow> windows = new EnumMap<>(Span.class);
+    private final Map<String, long[]> revenueByCategory = new HashMap<>();
+    private final Map<FoodItem, RatingTotals> ratingsByItem = new HashMap<>();
+    private final RatingTotals vendorRatings = new RatingTotals();
+
+    public VendorAnalytics() {
+        for (Span span : Span.values()) {
+            windows.put(span, new SlidingWindow(span));
+        }
+    }
+
+    public void orderCompleted(Order order) {
+        orderCompleted(order, System.currentTimeMillis());
+    }
+
+    synchronized void orderCompleted(Order order, long nowMillis) {
+        for (Map.Entry<FoodItem, Integer> line : order.getItems().entrySet()) {
+            FoodItem item = line.getKey();
+            int quantity = line.getValue();
+            long revenue = item.getPriceMinor() * quantity;
+            for (SlidingWindow window : windows.values()) {
+                window.add(item, quantity, revenue, nowMillis);
+            }
+            revenueByCategory.computeIfAbsent(item.getCategory(), k -> new long[1])[0] += revenue;
+        }
+    }
+
+    // The order's rating counts towards every item on it, since feedback is filed per order
+    public synchronized void feedbackAdded(Feedback feedback) {
+        int rating = feedback.getRating();
+        if (rating < 1 || rating > 5) {
+            return;
+        }
+        vendorRatings.add(rating);
+        for (FoodItem item : feedback.getOrder().getItems().keySet()) {
+            ratingsByItem.computeIfAbsent(item.getBaseItem(), k -> new RatingTotals()).add(rating);
+        }
+    }
+
+    public List<ItemStats> getTopItemsByVolume(Span span, int limit) {
+        return getTopItems(span, limit, false, System.currentTimeMillis());
+    }
+
+    public List<ItemStats> getTopItemsByRevenue(Span span, int limit) {
+        return getTopItems(span, limit, true, System.currentTimeMillis());
+    }
+
+    synchronized List<ItemStats> getTopItems(Span span, int limit, boolean byRevenue, long nowMillis) {
+        SlidingWindow window = windows.get(span);
+        window.advance(nowMillis);
+        List<ItemStats> top = new ArrayList<>(Math.min(limit, window.totals.size()));
+        Iterator<WindowTotals> ranked = (byRevenue ? window.byRevenue : window.byVolume).iterator();
+        while (top.size() < limit && ranked.hasNext()) {
+            WindowTotals totals = ranked.next();
+            top.add(new ItemStats(totals.latest, totals.quantity, totals.revenueMinor));
+        }
+        return top;
+    }
+
+    public synchronized long getCategoryRevenueMinor(String category) {
+        long[] revenue = revenueByCategory.get(category);
+        return revenue == null ? 0 : revenue[0];
+    }
+
+    public synchronized Map<String, Long> getRevenueByCategory() {
+        Map<String, Long> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : revenueByCategory.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return copy;
+    }
+
+    public synchronized double getAverageRating(FoodItem item) {
+        RatingTotals totals = ratingsByItem.get(item.getBaseItem());
+        return totals == null ? 0 : totals.mean();
+    }
+
+    public synchronized int[] getRatingDistribution(FoodItem item) {
+        RatingTotals totals = ratingsByItem.get(item.getBaseItem());
+        return totals == null ? new int[6] : totals.distribution.clone();
+    }
+
+    public synchronized int getRatingCount(FoodItem item) {
+        RatingTotals totals = ratingsByItem.get(item.getBaseItem());
+        return totals == null ? 0 : totals.count;
+    }
+
+    public synchronized double getAverageRating() {
+        return vendorRatings.mean();
+    }
+
+    public static class ItemStats {
+        private final FoodItem item;
+        private final long quantity;
+        private final long revenueMinor;
+
+        private ItemStats(FoodItem item, long quantity, long revenueMinor) {
+            this.item = item;
+            this.quantity = quantity;
+            this.revenueMinor = revenueMinor;
+        }
+
+        public FoodItem getItem() { return item; }
+        public long getQuantity() { return quantity; }
+        public long getRevenueMinor() { return revenueMinor; }
+    }
+
+    private static class RatingTotals {
+        // Index 1..5 holds the number of ratings with that score
+        private final int[] distribution = new int[6];
+        private int count;
+        private long sum;
+
+        private void add(int rating) {
+            distribution[rating]++;
+            count++;
+            sum += rating;
+        }
+
+        private double mean() {
+            return count == 0 ? 0 : sum / (double) count;
+        }
+    }
+
+    // Keyed by the dish's first version so a price change keeps one row; stats report the newest version sold
+    private static class WindowTotals {
+        private final FoodItem item;
+        private FoodItem latest;
+        private long quantity;
+        private long revenueMinor;
+
+        private WindowTotals(FoodItem item) {
+            this.item = item;
+            this.latest = item;
+        }
+    }
+
+    // A ring of time buckets; expiring a bucket subtracts exactly what it added, so totals stay exact
+    private static class SlidingWindow {
+        private static final Comparator<WindowTotals> BY_VOLUME = Comparator
+                .comparingLong((WindowTotals t) -> -t.quantity)
+                .thenComparingInt(t -> t.item.getOrdinal())
+                .thenComparingInt(t -> System.identityHashCode(t.item));
+        private static final Comparator<WindowTotals> BY_REVENUE = Comparator
+                .comparingLong((WindowTotals t) -> -t.revenueMinor)
+                .thenComparingInt(t -> t.item.getOrdinal())
+                .thenComparingInt(t -> System.identityHashCode(t.item));
+
+        private final Span span;
+        private final long[] bucketEpochs;
+        private final List<Map<FoodItem, long[]>> buckets;
+        private final Map<FoodItem, WindowTotals> totals = new HashMap<>();
+        private final TreeSet<WindowTotals> byVolume = new TreeSet<>(BY_VOLUME);
+        private final TreeSet<WindowTotals> byRevenue = new TreeSet<>(BY_REVENUE);
+        private long latestEpoch = Long.MIN_VALUE;
+
+        private SlidingWindow(Span span) {
+            this.span = span;
+            this.bucketEpochs = new long[span.buckets];
+            this.buckets = new ArrayList<>(span.buckets);
+            for (int i = 0; i < span.buckets; i++) {
+                bucketEpochs[i] = Long.MIN_VALUE;
+                buckets.add(new HashMap<>());
+            }
+        }
+
+        private void add(FoodItem item, int quantity, long revenueMinor, long nowMillis) {
+            advance(nowMillis);
+            FoodItem baseItem = item.getBaseItem();
+            // A clock that steps backwards still lands in the newest bucket, never in an expired one
+            int slot = (int) Math.floorMod(latestEpoch, (long) span.buckets);
+            long[] bucket = buckets.get(slot).computeIfAbsent(baseItem, k -> new long[2]);
+            bucket[0] += quantity;
+            bucket[1] += revenueMinor;
+            adjust(baseItem, quantity, revenueMinor);
+            WindowTotals totals = this.totals.get(baseItem);
+            if (totals != null && item.getOrdinal() > totals.latest.getOrdinal()) {
+                totals.latest = item;
+            }
+        }
+
+        // Touches at most one full ring of buckets, however long the window sat idle
+        private void advance(long nowMillis) {
+            long epoch = nowMillis / span.bucketMillis;
+            if (epoch <= latestEpoch) {
+                return;
+            }
+            long from = Math.max(latestEpoch + 1, epoch - span.buckets + 1);
+            if (latestEpoch == Long.MIN_VALUE) {
+                from = epoch;
+            }
+            for (long e = from; e <= epoch; e++) {
+                int slot = (int) Math.floorMod(e, (long) span.buckets);
+                if (bucketEpochs[slot] != e) {
+                    Map<FoodItem, long[]> expired = buckets.get(slot);
+                    for (Map.Entry<FoodItem, long[]> entry : expired.entrySet()) {
+                        adjust(entry.getKey(), -entry.getValue()[0], -entry.getValue()[1]);
+                    }
+                    expired.clear();
+                    bucketEpochs[slot] = e;
+                }
+            }
+            latestEpoch = epoch;
+        }
+
+        private void adjust(FoodItem item, long quantity, long revenueMinor) {
+            WindowTotals current = totals.get(item);
+            if (current == null) {
+                current = new WindowTotals(item);
+                totals.put(item, current);
+            } else {
+                byVolume.remove(current);
+                byRevenue.remove(current);
+            }
+            current.quantity += quantity;
+            current.revenueMinor += revenueMinor;
+            if (current.quantity <= 0 && current.revenueMinor <= 0) {
+                totals.remove(item);
+                return;
+            }
+            byVolume.add(current);
+            byRevenue.add(current);
+        }
+    }
+}
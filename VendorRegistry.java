@@ -0,0 +1,235 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+public class VendorRegistry {
+    private static final LatencyHistogram SPLIT_CHECKOUT_LATENCY = Metrics.getDefault().histogram(Metrics.SPLIT_CHECKOUT);
+
+    public interface PaymentFactory {
+        Payment create(Vendor vendor, double amount);
+    }
+
+    private final Map<String, VendorShard> shardsByVendorID = new ConcurrentHashMap<>();
+    private final List<VendorShard> shards = new CopyOnWriteArrayList<>();
+    // Keyed by each dish's first version, which every repriced version shares
+    private final Map<FoodItem, VendorShard> shardsByItem = new ConcurrentHashMap<>();
+    private final List<OrderListener> listeners = new CopyOnWriteArrayList<>();
+    private final IdempotencyCache<SplitCheckout> recentCheckouts = new IdempotencyCache<>(
+            Integer.getInteger("canteen.idempotency.capacity", IdempotencyCache.DEFAULT_CAPACITY),
+            Long.getLong("canteen.idempotency.ttlMillis", IdempotencyCache.DEFAULT_TTL_MILLIS),
+            result -> !result.getOrders().isEmpty());
+    // Shared by every shard, so payments landing at several stalls at once are applied in one pass
+    private final SettlementPipeline settlementPipeline = new SettlementPipeline(
+            Integer.getInteger("canteen.settlement.maxBatch", 64),
+            Long.getLong("canteen.settlement.lingerMicros", 200));
+
+    public VendorRegistry() {
+        Metrics.getDefault().gauge("checkout.idempotency.entries", recentCheckouts::size);
+        Metrics.getDefault().gauge("checkout.idempotency.replays", recentCheckouts::getHits);
+        Metrics.getDefault().gauge("settlement.batches", settlementPipeline::getBatchesApplied);
+    }
+
+    public synchronized VendorShard register(Vendor vendor) {
+        if (shardsByVendorID.containsKey(vendor.getVendorID())) {
+            throw new IllegalArgumentException("Vendor " + vendor.getVendorID() + " is already registered.");
+        }
+        VendorShard shard = new VendorShard(vendor);
+        shard.getOrderService().setSettlementPipeline(settlementPipeline);
+        for (OrderListener listener : listeners) {
+            shard.getOrderService().addListener(listener);
+        }
+        for (FoodItem item : vendor.getMenu().getItems()) {
+            shardsByItem.put(item.getBaseItem(), shard);
+        }
+        shardsByVendorID.put(vendor.getVendorID(), shard);
+        shards.add(shard);
+        OrderManager orders = shard.getOrderService().getOrderManager();
+        Metrics.getDefault().gauge("orders.pending." + vendor.getVendorID(), () -> orders.countOrdersByStatus("Pending"));
+        Metrics.getDefault().gauge("orders.preparing." + vendor.getVendorID(), () -> orders.countOrdersByStatus("Preparing"));
+        Metrics.getDefault().gauge("kitchen.queuedTasks." + vendor.getVendorID(), () -> vendor.getKitchen().getQueuedTaskCount());
+        return shard;
+    }
+
+    public CompletableFuture<Void> addFoodItem(String vendorID, FoodItem item) {
+        VendorShard shard = getShard(vendorID);
+        return shard.submit(() -> {
+            shard.getVendor().addFoodItem(item);
+            shardsByItem.put(item.getBaseItem(), shard);
+            return null;
+        });
+    }
+
+    // Every version of the item routes through its base item, so carts priced before the change still check out
+    public CompletableFuture<FoodItem> updatePrice(String vendorID, String itemID, double price) {
+        VendorShard shard = getShard(vendorID);
+        return shard.submit(() -> shard.getVendor().getMenu().updatePrice(itemID, price));
+    }
+
+    // Listeners see events from every vendor, including vendors registered later
+    public synchronized void addListener(OrderListener listener) {
+        listeners.add(listener);
+        for (VendorShard shard : shards) {
+            shard.getOrderService().addListener(listener);
+        }
+    }
+
+    public VendorShard getShard(String vendorID) {
+        VendorShard shard = shardsByVendorID.get(vendorID);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown vendor " + vendorID + ".");
+        }
+        return shard;
+    }
+
+    public VendorShard getShard(Vendor vendor) {
+        return getShard(vendor.getVendorID());
+    }
+
+    public VendorShard findShard(FoodItem item) {
+        return shardsByItem.get(item.getBaseItem());
+    }
+
+    public List<VendorShard> getShards() {
+        return Collections.unmodifiableList(shards);
+    }
+
+    public Map<String, Vendor> getVendors() {
+        Map<String, Vendor> vendors = new LinkedHashMap<>();
+        for (VendorShard shard : shards) {
+            vendors.put(shard.getVendor().getVendorID(), shard.getVendor());
+        }
+        return vendors;
+    }
+
+    public FoodItem findItemByID(String itemID) {
+        for (VendorShard shard : shards) {
+            FoodItem item = shard.getVendor().getMenu().findItemByID(itemID);
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks out at most once per cart and key while the key is remembered: a retry or double submit gets the
+     * first attempt's result, or joins it while it is still running, and nothing is charged again. A checkout that
+     * placed no order at all is forgotten so the same key can be retried.
+     */
+    public CompletableFuture<SplitCheckout> checkout(String idempotencyKey, Cart cart, PaymentFactory paymentFactory,
+                                                     PaymentAuthorizer authorizer, Executor cartExecutor) {
+        if (idempotencyKey == null) {
+            return checkout(cart, paymentFactory, authorizer, cartExecutor);
+        }
+        return recentCheckouts.execute(checkoutKey(cart, idempotencyKey),
+                () -> checkout(cart, paymentFactory, authorizer, cartExecutor));
+    }
+
+    public boolean isCheckoutKnown(Cart cart, String idempotencyKey) {
+        return recentCheckouts.contains(checkoutKey(cart, idempotencyKey));
+    }
+
+    // Keys are scoped to the cart so two clients picking the same key cannot see each other's orders
+    private static String checkoutKey(Cart cart, String idempotencyKey) {
+        return cart.getCartID() + "/" + idempotencyKey;
+    }
+
+    /**
+     * Splits a cart that spans several stalls into one order per vendor, each placed on that vendor's shard.
+     * Lines whose vendor accepted the payment are removed from the cart on cartExecutor, turning their stock
+     * reservations into sales; declined lines stay, still reserved. The cart rejects edits until then.
+     */
+    public CompletableFuture<SplitCheckout> checkout(Cart cart, PaymentFactory paymentFactory, PaymentAuthorizer authorizer,
+                                                     Executor cartExecutor) {
+        long start = System.nanoTime();
+        Map<VendorShard, Cart> vendorCarts = new LinkedHashMap<>();
+        for (int line = 0; line < cart.getLineCount(); line++) {
+            FoodItem item = cart.getLineItem(line);
+            VendorShard shard = shardsByItem.get(item.getBaseItem());
+            if (shard == null) {
+                CompletableFuture<SplitCheckout> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new PaymentException(item.getName() + " is not sold by any registered vendor."));
+                return failed;
+            }
+            Cart vendorCart = vendorCarts.computeIfAbsent(shard,
+                    s -> new Cart(cart.getCartID() + "/" + s.getVendor().getVendorID(), cart.getCustomer(), false));
+            vendorCart.addItem(item, cart.getLineQuantity(line));
+            vendorCart.recordMenuVersion(cart.getMenuVersion());
+        }
+        if (vendorCarts.isEmpty()) {
+            CompletableFuture<SplitCheckout> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new PaymentException("Cart is empty!"));
+            return failed;
+        }
+        cart.beginCheckout();
+
+        Map<Vendor, CompletableFuture<Order>> placements = new LinkedHashMap<>();
+        for (Map.Entry<VendorShard, Cart> entry : vendorCarts.entrySet()) {
+            VendorShard shard = entry.getKey();
+            Cart vendorCart = entry.getValue();
+            Payment payment = paymentFactory.create(shard.getVendor(), Money.toMajor(vendorCart.getTotalMinor()));
+            CompletableFuture<Order> placed;
+            if (authorizer != null && payment instanceof DigitalPayment) {
+                placed = authorizer.authorize((DigitalPayment) payment).thenCompose(approved -> shard.checkout(vendorCart, payment));
+            } else {
+                placed = shard.checkout(vendorCart, payment);
+            }
+            placements.put(shard.getVendor(), placed);
+        }
+
+        return CompletableFuture.allOf(placements.values().stream()
+                .map(f -> f.handle((order, error) -> null))
+                .toArray(CompletableFuture[]::new))
+                .thenApplyAsync(done -> {
+                    SPLIT_CHECKOUT_LATENCY.recordSince(start);
+                    SplitCheckout result = new SplitCheckout();
+                    try {
+                        for (Map.Entry<Vendor, CompletableFuture<Order>> entry : placements.entrySet()) {
+                            try {
+                                Order order = entry.getValue().join();
+                                result.orders.add(order);
+                                for (Map.Entry<FoodItem, Integer> line : order.getItems().entrySet()) {
+                                    cart.confirmItem(line.getKey(), line.getValue());
+                                }
+                            } catch (CompletionException e) {
+                                result.failures.put(entry.getKey(), e.getCause());
+                            }
+                        }
+                    } finally {
+                        cart.endCheckout();
+                    }
+                    return result;
+                }, cartExecutor);
+    }
+
+    public void shutdown() {
+        for (VendorShard shard : shards) {
+            shard.shutdown();
+        }
+        settlementPipeline.shutdown();
+    }
+
+    public static class SplitCheckout {
+        private final List<Order> orders = new ArrayList<>();
+        private final Map<Vendor, Throwable> failures = new LinkedHashMap<>();
+
+        public List<Order> getOrders() {
+            return orders;
+        }
+
+        public Map<Vendor, Throwable> getFailures() {
+            return failures;
+        }
+
+        public boolean isComplete() {
+            return failures.isEmpty();
+        }
+    }
+}
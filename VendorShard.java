@@ -0,0 +1,61 @@
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * One vendor's menu, orders and ledger. Checkouts, menu edits and feedback run one at a time on this shard's own
+ * thread. Order status and analytics also move on kitchen threads, under the Order's and VendorAnalytics' locks.
+ */
+public class VendorShard {
+    private final Vendor vendor;
+    private final OrderService orderService;
+    private final ExecutorService writer;
+
+    public VendorShard(Vendor vendor) {
+        this.vendor = vendor;
+        this.orderService = new OrderService(vendor, new OrderManager());
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "vendor-" + vendor.getVendorID());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            writer.execute(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public CompletableFuture<Order> checkout(Cart vendorCart, Payment payment) {
+        return orderService.checkout(vendorCart, payment, writer);
+    }
+
+    public CompletableFuture<Feedback> submitFeedback(Order order, int rating, String comments) {
+        return submit(() -> orderService.submitFeedback(order, rating, comments));
+    }
+
+    public Vendor getVendor() {
+        return vendor;
+    }
+
+    public OrderService getOrderService() {
+        return orderService;
+    }
+
+    public void shutdown() {
+        writer.shutdown();
+    }
+}
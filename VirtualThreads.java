@@ -0,0 +1,32 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Thread-per-task executors that use virtual threads where the runtime has them and daemon threads elsewhere
+public final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    public static boolean isAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public static ExecutorService newPerTaskExecutor(String namePrefix) {
+        try {
+            // Looked up reflectively so the tree still compiles and runs on Java 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCounter = new AtomicInteger(1);
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, namePrefix + "-" + threadCounter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,242 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class WriteAheadLog implements Closeable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_RECORD = 16 * 1024 * 1024;
+
+    public interface RecordHandler {
+        void accept(byte type, DataInputStream payload) throws IOException;
+    }
+
+    private final Path directory;
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private long segment;
+    private ByteBuffer active = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private final CRC32 crc = new CRC32();
+    private long appendedSeq;
+    private volatile long durableSeq;
+    // Set by the first failed write or force; after it nothing is accepted or reported durable
+    private volatile IOException failure;
+
+    public WriteAheadLog(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        List<Long> existing = segmentNumbers(directory);
+        // Never append to an old segment: its tail may be torn from a crash
+        this.segment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        this.channel = openSegment(segment);
+    }
+
+    public synchronized long append(byte type, byte[] payload) {
+        checkHealthy();
+        int frameLength = 8 + 1 + payload.length;
+        if (active.remaining() < frameLength) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(active.capacity() * 2, active.position() + frameLength));
+            active.flip();
+            grown.put(active);
+            active = grown;
+        }
+        crc.reset();
+        crc.update(type);
+        crc.update(payload, 0, payload.length);
+        active.putInt(1 + payload.length);
+        active.putInt((int) crc.getValue());
+        active.put(type);
+        active.put(payload);
+        return ++appendedSeq;
+    }
+
+    // Group commit: whichever caller gets here first writes and forces everything appended so far
+    public void sync(long seq) throws IOException {
+        checkSyncable();
+        if (durableSeq >= seq) {
+            return;
+        }
+        synchronized (syncLock) {
+            checkSyncable();
+            if (durableSeq >= seq) {
+                return;
+            }
+            flushAndForce();
+        }
+    }
+
+    public void syncAll() throws IOException {
+        long seq;
+        synchronized (this) {
+            seq = appendedSeq;
+        }
+        sync(seq);
+    }
+
+    public long roll() throws IOException {
+        synchronized (syncLock) {
+            flushAndForce();
+            synchronized (this) {
+                long closed = segment;
+                channel.close();
+                segment++;
+                channel = openSegment(segment);
+                return closed;
+            }
+        }
+    }
+
+    public long getDurableSeq() {
+        return durableSeq;
+    }
+
+    public synchronized long getAppendedSeq() {
+        return appendedSeq;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public IOException getFailure() {
+        return failure;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            try {
+                if (failure == null) {
+                    flushAndForce();
+                }
+            } finally {
+                synchronized (this) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    private void checkHealthy() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log is failed; no further records are accepted.", failure);
+        }
+    }
+
+    private void checkSyncable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Write-ahead log is failed; no further records are durable.", failure);
+        }
+    }
+
+    // A failed write may leave a torn frame mid-segment that replay stops at, so the log is failed for good
+    private void flushAndForce() throws IOException {
+        checkSyncable();
+        ByteBuffer toWrite;
+        long upTo;
+        synchronized (this) {
+            toWrite = active;
+            active = spare;
+            active.clear();
+            spare = toWrite;
+            upTo = appendedSeq;
+        }
+        toWrite.flip();
+        try {
+            while (toWrite.hasRemaining()) {
+                channel.write(toWrite);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        durableSeq = upTo;
+    }
+
+    static void writeFrame(DataOutputStream out, byte type, byte[] payload) throws IOException {
+        CRC32 check = new CRC32();
+        check.update(type);
+        check.update(payload, 0, payload.length);
+        out.writeInt(1 + payload.length);
+        out.writeInt((int) check.getValue());
+        out.writeByte(type);
+        out.write(payload);
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    static List<Long> segmentNumbers(Path directory) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return numbers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    public static long replay(Path file, RecordHandler handler) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            return replay(new DataInputStream(in), handler);
+        }
+    }
+
+    // Stops quietly at the first short or corrupt frame: that is the torn tail of the last write before a crash
+    static long replay(DataInputStream in, RecordHandler handler) throws IOException {
+        long records = 0;
+        CRC32 check = new CRC32();
+        while (true) {
+            int length;
+            int expectedCrc;
+            byte[] frame;
+            try {
+                length = in.readInt();
+                expectedCrc = in.readInt();
+                if (length < 1 || length > MAX_RECORD) {
+                    return records;
+                }
+                frame = new byte[length];
+                in.readFully(frame);
+            } catch (EOFException e) {
+                return records;
+            }
+            check.reset();
+            check.update(frame, 0, frame.length);
+            if ((int) check.getValue() != expectedCrc) {
+                return records;
+            }
+            handler.accept(frame[0], new DataInputStream(new ByteArrayInputStream(frame, 1, frame.length - 1)));
+            records++;
+        }
+    }
+}